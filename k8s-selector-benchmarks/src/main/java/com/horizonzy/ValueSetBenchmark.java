@@ -0,0 +1,76 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the layout {@link ValueSet#of} picks with the hash table at the same sizes, to place
+ * {@link ValueSet#INLINE_MAX}. It lives in com.horizonzy as ValueSet is package-private. Every
+ * call probes one value, alternating between present and absent ones, each a fresh copy so equals
+ * compares characters as it does for parsed labels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueSetBenchmark {
+
+    private static final int PROBES = 64;
+
+    @Param({"1", "2", "3", "4", "6", "8"})
+    public int size;
+
+    private ValueSet chosen;
+
+    private ValueSet hashed;
+
+    private String[] probes;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            values.add("value-" + i);
+        }
+        chosen = ValueSet.of(values);
+        hashed = new ValueSet.Hashed(values.toArray(new String[0]));
+        probes = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            // even probes hit a value of the set, odd ones miss it
+            int value = i % 2 == 0 ? (i / 2) % size : size + i;
+            probes[i] = new String(("value-" + value).toCharArray());
+        }
+    }
+
+    @Benchmark
+    public boolean chosen() {
+        return chosen.contains(nextProbe());
+    }
+
+    @Benchmark
+    public boolean hashed() {
+        return hashed.contains(nextProbe());
+    }
+
+    private String nextProbe() {
+        String probe = probes[next];
+        next = (next + 1) & (PROBES - 1);
+        return probe;
+    }
+}
@@ -0,0 +1,95 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.FieldSelector;
+import com.horizonzy.InternalSelector;
+import com.horizonzy.Selector;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matches 'status.phase=Running,spec.nodeName=n1' against an object, either with a
+ * {@link FieldSelector} or by flattening the object into a string map for a label selector.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldSelectorBenchmark {
+
+    public static class Status {
+
+        public String getPhase() {
+            return "Running";
+        }
+
+        public String getReason() {
+            return "Started";
+        }
+    }
+
+    public static class Spec {
+
+        public String getNodeName() {
+            return "n1";
+        }
+
+        public String getServiceAccountName() {
+            return "default";
+        }
+    }
+
+    public static class Pod {
+
+        private final Status status = new Status();
+
+        private final Spec spec = new Spec();
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public Spec getSpec() {
+            return spec;
+        }
+    }
+
+    private final Pod pod = new Pod();
+
+    private FieldSelector fieldSelector;
+
+    private InternalSelector labelSelector;
+
+    @Setup
+    public void setup() {
+        fieldSelector = FieldSelector.parse("status.phase=Running,spec.nodeName=n1");
+        labelSelector = Selector.parse("status.phase=Running,spec.nodeName=n1");
+    }
+
+    @Benchmark
+    public boolean fieldSelector() {
+        return fieldSelector.matches(pod);
+    }
+
+    @Benchmark
+    public boolean flattenToMap() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("status.phase", pod.getStatus().getPhase());
+        fields.put("status.reason", pod.getStatus().getReason());
+        fields.put("spec.nodeName", pod.getSpec().getNodeName());
+        fields.put("spec.serviceAccountName", pod.getSpec().getServiceAccountName());
+        return labelSelector.matches(fields);
+    }
+}
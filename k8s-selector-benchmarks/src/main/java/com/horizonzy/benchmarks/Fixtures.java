@@ -0,0 +1,58 @@
+package com.horizonzy.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static String key(int i) {
+        return "example.com/key-" + i;
+    }
+
+    static String value(int i) {
+        return "value-" + i;
+    }
+
+    // inSelector builds "k0 in (v0,...),k1 in (v0,...),..." with the given shape.
+    static String inSelector(int requirements, int inListLength) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < requirements; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(key(i)).append(" in (");
+            for (int j = 0; j < inListLength; j++) {
+                if (j > 0) {
+                    builder.append(',');
+                }
+                builder.append(value(j));
+            }
+            builder.append(')');
+        }
+        return builder.toString();
+    }
+
+    // equalsSelector builds "k0=v0,k1=v0,..." with the given number of requirements.
+    static String equalsSelector(int requirements) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < requirements; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(key(i)).append('=').append(value(0));
+        }
+        return builder.toString();
+    }
+
+    // labels builds a label map of the given size whose first keys satisfy the selectors above.
+    static Map<String, String> labels(int size) {
+        Map<String, String> labels = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            labels.put(key(i), value(0));
+        }
+        return labels;
+    }
+}
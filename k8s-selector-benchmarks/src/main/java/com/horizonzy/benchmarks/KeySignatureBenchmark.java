@@ -0,0 +1,81 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.InternalSelector;
+import com.horizonzy.KeySignature;
+import com.horizonzy.Selector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Counts the matches of one selector over a mixed workload where most objects lack its keys,
+ * with and without a precomputed {@link KeySignature} per object.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeySignatureBenchmark {
+
+    private static final int OBJECT_COUNT = 100000;
+
+    private final List<Map<String, String>> objects = new ArrayList<>();
+
+    private long[] signatures;
+
+    private InternalSelector selector;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        signatures = new long[OBJECT_COUNT];
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            // every workload labels its objects with a handful of keys out of 40
+            Map<String, String> labels = new HashMap<>();
+            int workload = random.nextInt(8);
+            for (int k = 0; k < 5; k++) {
+                labels.put("key-" + (workload * 5 + k), "value-" + random.nextInt(4));
+            }
+            objects.add(labels);
+            signatures[i] = KeySignature.of(labels);
+        }
+        selector = Selector.parse("key-0=value-1,key-3 in (value-2,value-3)");
+    }
+
+    @Benchmark
+    public int matches() {
+        int count = 0;
+        for (int i = 0; i < objects.size(); i++) {
+            if (selector.matches(objects.get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int signatureMatches() {
+        int count = 0;
+        for (int i = 0; i < objects.size(); i++) {
+            if (selector.matches(objects.get(i), signatures[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
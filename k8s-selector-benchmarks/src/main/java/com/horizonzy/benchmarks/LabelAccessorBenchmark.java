@@ -0,0 +1,64 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.InternalSelector;
+import com.horizonzy.LabelAccessor;
+import com.horizonzy.Selector;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matches labels kept in sorted parallel arrays, either by copying them into a map first or
+ * through {@link LabelAccessor#sorted}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelAccessorBenchmark {
+
+    @Param({"16", "64"})
+    public int labelCount;
+
+    private String[] keys;
+
+    private String[] values;
+
+    private InternalSelector selector;
+
+    @Setup
+    public void setup() {
+        TreeMap<String, String> labels = new TreeMap<>(Fixtures.labels(labelCount));
+        keys = labels.keySet().toArray(new String[0]);
+        values = labels.values().toArray(new String[0]);
+        selector = Selector.parse(Fixtures.equalsSelector(4));
+    }
+
+    @Benchmark
+    public boolean copyToMap() {
+        Map<String, String> labels = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            labels.put(keys[i], values[i]);
+        }
+        return selector.matches(labels);
+    }
+
+    @Benchmark
+    public boolean accessor() {
+        return selector.matches(LabelAccessor.sorted(keys, values));
+    }
+}
@@ -0,0 +1,72 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.InternalSelector;
+import com.horizonzy.LabelIndex;
+import com.horizonzy.Selector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lists the objects matching a selective selector through {@link LabelIndex} and through a full
+ * scan of every label map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelIndexBenchmark {
+
+    @Param({"10000", "100000"})
+    public int objectCount;
+
+    private final List<Map<String, String>> objects = new ArrayList<>();
+
+    private final LabelIndex<Integer> index = new LabelIndex<>();
+
+    private InternalSelector selector;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < objectCount; i++) {
+            Map<String, String> labels = new HashMap<>();
+            labels.put("app", "app-" + (i % 1000));
+            labels.put("tier", i % 2 == 0 ? "frontend" : "backend");
+            labels.put("env", "env-" + (i % 3));
+            objects.add(labels);
+            index.put(i, labels);
+        }
+        selector = Selector.parse("app=app-7,tier=backend,env!=env-0");
+    }
+
+    @Benchmark
+    public List<Integer> indexSelect() {
+        return index.select(selector);
+    }
+
+    @Benchmark
+    public List<Integer> fullScan() {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < objects.size(); i++) {
+            if (selector.matches(objects.get(i))) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+}
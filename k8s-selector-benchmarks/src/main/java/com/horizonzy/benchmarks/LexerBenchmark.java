@@ -0,0 +1,67 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.Lexer;
+import com.horizonzy.Token;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lexes a single "key in (...)" selector of the given length. Time and allocation per operation
+ * should grow linearly with {@code length}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int length;
+
+    private String selector;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder(Fixtures.key(0)).append(" in (");
+        for (int i = 0; builder.length() < length - 1; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(Fixtures.value(i));
+        }
+        builder.append(')');
+        selector = builder.toString();
+    }
+
+    @Benchmark
+    public int tokens() {
+        Lexer lexer = new Lexer(selector);
+        int count = 0;
+        while (lexer.next() != Token.EndOfStringToken) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int tokensWithText() {
+        Lexer lexer = new Lexer(selector);
+        int total = 0;
+        while (lexer.next() != Token.EndOfStringToken) {
+            total += lexer.tokenText().length();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,79 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.ColumnarLabelStore;
+import com.horizonzy.InternalSelector;
+import com.horizonzy.Selector;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matches one selector against every object of a resync, with {@link InternalSelector#matchAll},
+ * with a plain loop over {@link InternalSelector#matches} and with a scan of a
+ * {@link ColumnarLabelStore}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchAllBenchmark {
+
+    @Param({"10000", "500000"})
+    public int objectCount;
+
+    private final List<Map<String, String>> objects = new ArrayList<>();
+
+    private final ColumnarLabelStore store = new ColumnarLabelStore();
+
+    private InternalSelector selector;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < objectCount; i++) {
+            Map<String, String> labels = new HashMap<>();
+            labels.put("app", "app-" + (i % 1000));
+            labels.put("tier", i % 2 == 0 ? "frontend" : "backend");
+            labels.put("env", "env-" + (i % 3));
+            objects.add(labels);
+            store.add(labels);
+        }
+        selector = Selector.parse("tier=backend,env!=env-0");
+    }
+
+    @Benchmark
+    public BitSet matchAll() {
+        return selector.matchAll(objects);
+    }
+
+    @Benchmark
+    public BitSet loop() {
+        BitSet result = new BitSet(objects.size());
+        for (int i = 0; i < objects.size(); i++) {
+            if (selector.matches(objects.get(i))) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int[] columnar() {
+        return store.select(selector);
+    }
+}
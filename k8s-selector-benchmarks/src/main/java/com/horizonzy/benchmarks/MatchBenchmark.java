@@ -0,0 +1,75 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.InternalSelector;
+import com.horizonzy.Selector;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int selectorSize;
+
+    @Param({"1", "16", "256"})
+    public int inListLength;
+
+    @Param({"16", "64"})
+    public int labelCount;
+
+    private InternalSelector inSelector;
+
+    private InternalSelector equalsSelector;
+
+    private Predicate<Map<String, String>> compiledIn;
+
+    private Predicate<Map<String, String>> compiledEquals;
+
+    private Map<String, String> labels;
+
+    @Setup
+    public void setup() {
+        inSelector = Selector.parse(Fixtures.inSelector(selectorSize, inListLength));
+        equalsSelector = Selector.parse(Fixtures.equalsSelector(selectorSize));
+        compiledIn = inSelector.compile();
+        compiledEquals = equalsSelector.compile();
+        labels = Fixtures.labels(labelCount);
+    }
+
+    @Benchmark
+    public boolean matchesIn() {
+        return inSelector.matches(labels);
+    }
+
+    @Benchmark
+    public boolean matchesEquals() {
+        return equalsSelector.matches(labels);
+    }
+
+    @Benchmark
+    public boolean compiledIn() {
+        return compiledIn.test(labels);
+    }
+
+    @Benchmark
+    public boolean compiledEquals() {
+        return compiledEquals.test(labels);
+    }
+}
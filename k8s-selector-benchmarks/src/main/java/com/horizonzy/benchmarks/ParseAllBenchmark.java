@@ -0,0 +1,56 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.InternalSelector;
+import com.horizonzy.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses the selectors of a resync, where many objects share a selector, one at a time or with
+ * {@link Selector#parseAll}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseAllBenchmark {
+
+    private static final int SELECTOR_COUNT = 20000;
+
+    private final List<String> selectors = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < SELECTOR_COUNT; i++) {
+            selectors.add("app=app-" + (i % 5000) + ",tier in (frontend,backend),env!=env-"
+                    + (i % 3));
+        }
+    }
+
+    @Benchmark
+    public List<InternalSelector> parseEach() {
+        List<InternalSelector> result = new ArrayList<>(selectors.size());
+        for (String selector : selectors) {
+            result.add(Selector.parse(selector));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Selector.ParseResult> parseAll() {
+        return Selector.parseAll(selectors);
+    }
+}
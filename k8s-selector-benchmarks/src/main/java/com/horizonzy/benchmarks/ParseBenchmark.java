@@ -0,0 +1,60 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.InternalSelector;
+import com.horizonzy.Selector;
+import com.horizonzy.SelectorCache;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int selectorSize;
+
+    @Param({"1", "16", "256"})
+    public int inListLength;
+
+    private String inSelector;
+
+    private String equalsSelector;
+
+    private SelectorCache cache;
+
+    @Setup
+    public void setup() {
+        inSelector = Fixtures.inSelector(selectorSize, inListLength);
+        equalsSelector = Fixtures.equalsSelector(selectorSize);
+        cache = new SelectorCache(1024);
+    }
+
+    @Benchmark
+    public InternalSelector parseIn() {
+        return Selector.parse(inSelector);
+    }
+
+    @Benchmark
+    public InternalSelector parseEquals() {
+        return Selector.parse(equalsSelector);
+    }
+
+    @Benchmark
+    public InternalSelector parseInCached() {
+        return cache.parse(inSelector);
+    }
+}
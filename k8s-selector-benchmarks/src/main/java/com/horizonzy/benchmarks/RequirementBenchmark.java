@@ -0,0 +1,173 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.Requirement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequirementBenchmark {
+
+    // SingleValue covers the operators taking a fixed number of values
+    @State(Scope.Benchmark)
+    public static class SingleValue {
+
+        @Param({"=", "==", "!=", "exists", "!", "gt", "lt"})
+        public String operator;
+
+        @Param({"16", "64"})
+        public int labelCount;
+
+        Requirement requirement;
+
+        Map<String, String> labels;
+
+        @Setup
+        public void setup() {
+            List<String> values;
+            switch (operator) {
+                case "exists":
+                case "!":
+                    values = Collections.emptyList();
+                    break;
+                case "gt":
+                case "lt":
+                    values = Collections.singletonList("100");
+                    break;
+                default:
+                    values = Collections.singletonList(Fixtures.value(0));
+            }
+            requirement = Requirement.newRequirement(Fixtures.key(0), operator, values);
+            labels = new HashMap<>(Fixtures.labels(labelCount));
+            if ("gt".equals(operator) || "lt".equals(operator)) {
+                labels.put(Fixtures.key(0), "42");
+            }
+        }
+    }
+
+    // ValueList covers 'in' and 'notin', the only operators the list length matters to
+    @State(Scope.Benchmark)
+    public static class ValueList {
+
+        @Param({"in", "notin"})
+        public String operator;
+
+        @Param({"1", "16", "256"})
+        public int inListLength;
+
+        @Param({"16", "64"})
+        public int labelCount;
+
+        Requirement requirement;
+
+        Map<String, String> labels;
+
+        @Setup
+        public void setup() {
+            List<String> values = new ArrayList<>();
+            for (int i = inListLength - 1; i >= 0; i--) {
+                values.add(Fixtures.value(i));
+            }
+            requirement = Requirement.newRequirement(Fixtures.key(0), operator, values);
+            labels = Fixtures.labels(labelCount);
+        }
+    }
+
+    @Benchmark
+    public boolean matches(SingleValue state) {
+        return state.requirement.matches(state.labels);
+    }
+
+    @Benchmark
+    public boolean matchesValueList(ValueList state) {
+        return state.requirement.matches(state.labels);
+    }
+
+    // stringSwitchMatches is the Requirement.matches the project started from, kept as the
+    // baseline for matches(): a switch on the operator string, a linear scan of the value list
+    // and both integers of 'gt' and 'lt' parsed on every call.
+    @Benchmark
+    public boolean stringSwitchMatches(SingleValue state) {
+        return stringSwitchMatches(state.requirement, state.labels);
+    }
+
+    @Benchmark
+    public boolean stringSwitchMatchesValueList(ValueList state) {
+        return stringSwitchMatches(state.requirement, state.labels);
+    }
+
+    private static boolean stringSwitchMatches(Requirement requirement,
+            Map<String, String> labels) {
+        String key = requirement.getKey();
+        String operator = requirement.getOperator();
+        List<String> strValues = requirement.getStrValues();
+        switch (operator) {
+            case "in":
+            case "=":
+            case "==":
+                String val = labels.get(key);
+                if (val == null) {
+                    return false;
+                }
+                return strValues.contains(val);
+            case "notin":
+            case "!=":
+                String val2 = labels.get(key);
+                if (val2 == null) {
+                    return true;
+                }
+                return !strValues.contains(val2);
+            case "exists":
+                return labels.containsKey(key);
+            case "!":
+                return !labels.containsKey(key);
+            case "gt":
+            case "lt":
+                String val3 = labels.get(key);
+                if (val3 == null) {
+                    return false;
+                }
+                Integer lsValue;
+                try {
+                    lsValue = Integer.parseInt(val3);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                if (strValues.size() != 1) {
+                    throw new IllegalArgumentException(String.format(
+                            "Invalid values count %d of requirement %s", strValues.size(),
+                            requirement));
+                }
+                Integer rValue = null;
+                for (String strValue : strValues) {
+                    try {
+                        rValue = Integer.parseInt(strValue);
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+                return ("gt".equals(operator) && lsValue > rValue) || ("lt".equals(operator)
+                        && lsValue < rValue);
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.InternalSelector;
+import com.horizonzy.Selector;
+import com.horizonzy.SelectorBuilder;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectorFromValidatedSetBenchmark {
+
+    @Param({"2", "16", "64"})
+    public int labelCount;
+
+    private Map<String, String> labels;
+
+    @Setup
+    public void setup() {
+        labels = Fixtures.labels(labelCount);
+    }
+
+    @Benchmark
+    public InternalSelector selectorFromValidatedSet() {
+        return Selector.selectorFromValidatedSet(labels);
+    }
+
+    @Benchmark
+    public InternalSelector builder() {
+        return new SelectorBuilder().matchLabels(labels).build();
+    }
+
+    @Benchmark
+    public InternalSelector trustedBuilder() {
+        return SelectorBuilder.trusted().matchLabels(labels).build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.horizonzy.benchmarks;
+
+import com.horizonzy.Validation;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({"app", "app.kubernetes.io/component-name", "this-is-a-dns.domain.com/key-with-dash"})
+    public String key;
+
+    @Param({"", "backend", "v1.2.3-rc.1_build-42"})
+    public String value;
+
+    @Benchmark
+    public String isQualifiedName() {
+        Validation.isQualifiedName(key);
+        return key;
+    }
+
+    @Benchmark
+    public String isValidLabelValue() {
+        Validation.isValidLabelValue(value);
+        return value;
+    }
+}
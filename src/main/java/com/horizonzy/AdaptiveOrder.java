@@ -0,0 +1,133 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The evaluation order of an adaptive selector. One random call in {@link #SAMPLE_INTERVAL}
+ * evaluates every requirement, without short-circuiting, and records which ones rejected. Every
+ * {@link #REORDER_INTERVAL} samples the requirements are re-ranked by expected cost per
+ * rejection, using a static cost per operator, so the cheapest, most rejecting ones run first;
+ * the counts are then halved so recent label mixes dominate. Since all requirements must pass,
+ * the order never changes the result.
+ */
+final class AdaptiveOrder {
+
+    // SAMPLE_INTERVAL must be a power of two
+    static final int SAMPLE_INTERVAL = 64;
+
+    static final int REORDER_INTERVAL = 32;
+
+    private final Requirement[] requirements;
+
+    private final double[] costs;
+
+    private final long[] rejections;
+
+    private long samples;
+
+    // window counts the samples since the last reorder
+    private int window;
+
+    private volatile Requirement[] order;
+
+    AdaptiveOrder(List<Requirement> requirements) {
+        this.requirements = requirements.toArray(new Requirement[0]);
+        this.costs = new double[this.requirements.length];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = cost(this.requirements[i].getOperatorType());
+        }
+        this.rejections = new long[this.requirements.length];
+        this.order = this.requirements;
+    }
+
+    boolean matches(Map<String, String> labels) {
+        // a thread-local probe picks the calls to sample, so threads matching the same selector
+        // share no counter
+        if ((ThreadLocalRandom.current().nextInt() & (SAMPLE_INTERVAL - 1)) == 0) {
+            return sample(labels);
+        }
+        for (Requirement requirement : order) {
+            if (!requirement.matches(labels)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    List<Requirement> order() {
+        return Arrays.asList(order.clone());
+    }
+
+    // cost is the relative cost of evaluating an operator: one lookup for presence and equality,
+    // a value set probe on top for 'in' and 'notin', and integer parsing for 'gt' and 'lt'.
+    // Timing single evaluations would mostly measure the clock.
+    static double cost(Operator type) {
+        if (type == null) {
+            return 1;
+        }
+        switch (type) {
+            case IN:
+            case NOT_IN:
+                return 1.5;
+            case GREATER_THAN:
+            case LESS_THAN:
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    private boolean sample(Map<String, String> labels) {
+        boolean[] passed = new boolean[requirements.length];
+        boolean matches = true;
+        for (int i = 0; i < requirements.length; i++) {
+            passed[i] = requirements[i].matches(labels);
+            matches &= passed[i];
+        }
+        synchronized (this) {
+            for (int i = 0; i < requirements.length; i++) {
+                if (!passed[i]) {
+                    rejections[i]++;
+                }
+            }
+            samples++;
+            if (++window == REORDER_INTERVAL) {
+                window = 0;
+                reorder();
+                decay();
+            }
+        }
+        return matches;
+    }
+
+    // reorder ranks by cost over rejection rate; a requirement that was never seen to reject is
+    // treated as rejecting just under once per sample window
+    private void reorder() {
+        double[] rank = new double[requirements.length];
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < requirements.length; i++) {
+            double rejectRate = Math.max(rejections[i], 0.5) / samples;
+            rank[i] = costs[i] / rejectRate;
+            indexes.add(i);
+        }
+        indexes.sort(Comparator.comparingDouble(i -> rank[i]));
+        Requirement[] next = new Requirement[requirements.length];
+        for (int i = 0; i < next.length; i++) {
+            next[i] = requirements[indexes.get(i)];
+        }
+        order = next;
+    }
+
+    // decay halves every count, so a sample REORDER_INTERVAL samples old weighs half as much
+    private void decay() {
+        samples /= 2;
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] /= 2;
+        }
+    }
+}
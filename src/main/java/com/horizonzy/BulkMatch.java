@@ -0,0 +1,103 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates one selector against many label sets. Inputs of at least {@link #PARALLEL_THRESHOLD}
+ * elements are split into fork/join tasks over index ranges that start on a multiple of 64, so
+ * every task sets whole words of one shared bit array and nothing is merged on join.
+ */
+final class BulkMatch {
+
+    static final int PARALLEL_THRESHOLD = 8192;
+
+    // MIN_LEAF_SIZE keeps leaves large enough that task overhead stays small
+    static final int MIN_LEAF_SIZE = 1024;
+
+    private BulkMatch() {
+    }
+
+    static BitSet matchAll(InternalSelector selector, List<? extends Map<String, String>> objects,
+            ForkJoinPool pool) {
+        int size = objects.size();
+        if (size < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+            BitSet result = new BitSet(size);
+            int i = 0;
+            for (Map<String, String> labels : objects) {
+                if (selector.matches(labels)) {
+                    result.set(i);
+                }
+                i++;
+            }
+            return result;
+        }
+        if (!(objects instanceof RandomAccess)) {
+            // tasks read their range by index
+            objects = new ArrayList<>(objects);
+        }
+        long[] words = new long[(size + 63) >>> 6];
+        pool.invoke(new MatchTask(selector, objects, words, 0, size, leafSize(size, pool)));
+        return BitSet.valueOf(words);
+    }
+
+    private static int leafSize(int size, ForkJoinPool pool) {
+        return Math.max(MIN_LEAF_SIZE, size / (pool.getParallelism() * 4));
+    }
+
+    private static final class MatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final InternalSelector selector;
+
+        private final List<? extends Map<String, String>> objects;
+
+        // words is the result shared by all tasks; each task owns the words of its range
+        private final long[] words;
+
+        // from is a multiple of 64, so no two tasks write the same word
+        private final int from;
+
+        private final int to;
+
+        private final int leafSize;
+
+        MatchTask(InternalSelector selector, List<? extends Map<String, String>> objects,
+                long[] words, int from, int to, int leafSize) {
+            this.selector = selector;
+            this.objects = objects;
+            this.words = words;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > leafSize) {
+                int middle = from + ((to - from) / 2 & ~63);
+                MatchTask left = new MatchTask(selector, objects, words, from, middle, leafSize);
+                left.fork();
+                new MatchTask(selector, objects, words, middle, to, leafSize).compute();
+                left.join();
+                return;
+            }
+            long word = 0;
+            for (int i = from; i < to; i++) {
+                if (selector.matches(objects.get(i))) {
+                    word |= 1L << i;
+                }
+                if ((i & 63) == 63 || i == to - 1) {
+                    words[i >>> 6] = word;
+                    word = 0;
+                }
+            }
+        }
+    }
+}
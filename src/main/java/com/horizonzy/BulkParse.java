@@ -0,0 +1,107 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses a batch of selector strings. Identical strings are parsed once and share one frozen
+ * result; batches with at least {@link #PARALLEL_THRESHOLD} distinct strings are split into
+ * fork/join tasks over index ranges. Keys and values are canonicalized through the concurrent
+ * {@link LabelSymbols#shared()} table, so workers share one intern table.
+ */
+final class BulkParse {
+
+    static final int PARALLEL_THRESHOLD = 512;
+
+    // MIN_LEAF_SIZE keeps leaves large enough that task overhead stays small
+    static final int MIN_LEAF_SIZE = 64;
+
+    private BulkParse() {
+    }
+
+    static List<Selector.ParseResult> parseAll(Collection<String> selectors, ForkJoinPool pool) {
+        Map<String, Integer> slots = new HashMap<>();
+        List<String> distinct = new ArrayList<>();
+        int[] slotOf = new int[selectors.size()];
+        int i = 0;
+        for (String selector : selectors) {
+            if (selector == null) {
+                throw new NullPointerException("selector at index " + i + " is null");
+            }
+            Integer slot = slots.get(selector);
+            if (slot == null) {
+                slot = distinct.size();
+                slots.put(selector, slot);
+                distinct.add(selector);
+            }
+            slotOf[i++] = slot;
+        }
+
+        Selector.ParseResult[] parsed = new Selector.ParseResult[distinct.size()];
+        if (parsed.length < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+            parseRange(distinct, parsed, 0, parsed.length);
+        } else {
+            int leafSize = Math.max(MIN_LEAF_SIZE, parsed.length / (pool.getParallelism() * 4));
+            pool.invoke(new ParseTask(distinct, parsed, 0, parsed.length, leafSize));
+        }
+
+        List<Selector.ParseResult> results = new ArrayList<>(slotOf.length);
+        for (int slot : slotOf) {
+            results.add(parsed[slot]);
+        }
+        return results;
+    }
+
+    private static void parseRange(List<String> selectors, Selector.ParseResult[] parsed,
+            int from, int to) {
+        for (int i = from; i < to; i++) {
+            String selector = selectors.get(i);
+            try {
+                parsed[i] = new Selector.ParseResult(selector, Selector.parse(selector).freeze(),
+                        null);
+            } catch (IllegalArgumentException e) {
+                parsed[i] = new Selector.ParseResult(selector, null, e);
+            }
+        }
+    }
+
+    private static final class ParseTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> selectors;
+
+        private final Selector.ParseResult[] parsed;
+
+        private final int from;
+
+        private final int to;
+
+        private final int leafSize;
+
+        ParseTask(List<String> selectors, Selector.ParseResult[] parsed, int from, int to,
+                int leafSize) {
+            this.selectors = selectors;
+            this.parsed = parsed;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > leafSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(selectors, parsed, from, middle, leafSize),
+                        new ParseTask(selectors, parsed, middle, to, leafSize));
+                return;
+            }
+            parseRange(selectors, parsed, from, to);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An append-only store of label sets laid out by column: each label key owns a dictionary of its
+ * distinct values and an int column holding, per row, the dictionary code of the row's value or
+ * {@link #ABSENT}. {@link #select(InternalSelector)} turns every requirement into a table of
+ * accepted codes, evaluated once per distinct value, and then narrows a selection vector of row
+ * numbers with one array scan per requirement instead of one map lookup per requirement per row.
+ *
+ * <p>Safe for concurrent use; writers are serialized and readers run in parallel.
+ */
+public class ColumnarLabelStore {
+
+    static final int ABSENT = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<String, Column> columns = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int rows;
+
+    /**
+     * Appends a label set and returns its row number.
+     */
+    public int add(Map<String, String> labels) {
+        lock.writeLock().lock();
+        try {
+            int row = rows++;
+            if (labels != null) {
+                for (Entry<String, String> entry : labels.entrySet()) {
+                    Column column = columns.get(entry.getKey());
+                    if (column == null) {
+                        column = new Column();
+                        columns.put(entry.getKey(), column);
+                    }
+                    column.set(row, entry.getValue());
+                }
+            }
+            return row;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the value of a label of a row, or null if the row does not have the label.
+     */
+    public String get(int row, String key) {
+        lock.readLock().lock();
+        try {
+            if (row < 0 || row >= rows) {
+                throw new IndexOutOfBoundsException("row: " + row + ", size: " + rows);
+            }
+            Column column = columns.get(key);
+            if (column == null) {
+                return null;
+            }
+            int code = column.code(row);
+            return code == ABSENT ? null : column.dictionary.get(code);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ascending row numbers of the label sets matching the selector.
+     */
+    public int[] select(InternalSelector selector) {
+        lock.readLock().lock();
+        try {
+            int[] selection = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                selection[i] = i;
+            }
+            int selected = rows;
+            for (Requirement requirement : selector.getRequirementList()) {
+                if (selected == 0) {
+                    break;
+                }
+                selected = refine(requirement, selection, selected);
+            }
+            return Arrays.copyOf(selection, selected);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int count(InternalSelector selector) {
+        return select(selector).length;
+    }
+
+    // refine keeps the first selected rows of selection that satisfy the requirement, compacted
+    // to the front, and returns how many remain
+    private int refine(Requirement requirement, int[] selection, int selected) {
+        boolean acceptAbsent = requirement.matches(Collections.<String, String>emptyMap());
+        Column column = columns.get(requirement.getKey());
+        if (column == null) {
+            return acceptAbsent ? selected : 0;
+        }
+        boolean[] accept = column.accept(requirement);
+        int[] codes = column.codes;
+        int kept = 0;
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            int code = row < codes.length ? codes[row] : ABSENT;
+            if (code == ABSENT ? acceptAbsent : accept[code]) {
+                selection[kept++] = row;
+            }
+        }
+        return kept;
+    }
+
+    private static final class Column {
+
+        private final List<String> dictionary = new ArrayList<>();
+
+        private final Map<String, Integer> codesByValue = new HashMap<>();
+
+        // rows past the end of codes have never been given this label
+        private int[] codes = new int[0];
+
+        void set(int row, String value) {
+            Integer code = codesByValue.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codesByValue.put(value, code);
+            }
+            if (row >= codes.length) {
+                int length = codes.length;
+                codes = Arrays.copyOf(codes, Math.max(INITIAL_CAPACITY, Math.max(row + 1,
+                        length * 2)));
+                Arrays.fill(codes, length, codes.length, ABSENT);
+            }
+            codes[row] = code;
+        }
+
+        int code(int row) {
+            return row < codes.length ? codes[row] : ABSENT;
+        }
+
+        // accept evaluates the requirement once per distinct value of the column
+        boolean[] accept(Requirement requirement) {
+            boolean[] accept = new boolean[dictionary.size()];
+            for (int code = 0; code < accept.length; code++) {
+                accept[code] = requirement.matches(
+                        Collections.singletonMap(requirement.getKey(), dictionary.get(code)));
+            }
+            return accept;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.horizonzy;
+
+import java.util.Collections;
+import java.util.Map;
+
+// DoesNotExistRequirement represents '!key'
+final class DoesNotExistRequirement extends Requirement {
+
+    DoesNotExistRequirement(String key) {
+        super(key, Operator.DOES_NOT_EXIST, Collections.emptyList());
+    }
+
+    @Override
+    public boolean matches(Map<String, String> labels) {
+        return !labels.containsKey(key);
+    }
+
+    @Override
+    public boolean matches(LabelAccessor labels) {
+        return !labels.contains(key);
+    }
+}
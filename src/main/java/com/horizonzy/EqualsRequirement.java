@@ -0,0 +1,25 @@
+package com.horizonzy;
+
+import java.util.List;
+import java.util.Map;
+
+// EqualsRequirement represents 'key=value' and 'key==value'
+final class EqualsRequirement extends Requirement {
+
+    private final String value;
+
+    EqualsRequirement(String key, Operator type, List<String> strValues) {
+        super(key, type, strValues);
+        this.value = strValues.get(0);
+    }
+
+    @Override
+    public boolean matches(Map<String, String> labels) {
+        return value.equals(labels.get(key));
+    }
+
+    @Override
+    public boolean matches(LabelAccessor labels) {
+        return value.equals(labels.get(key));
+    }
+}
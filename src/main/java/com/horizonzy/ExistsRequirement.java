@@ -0,0 +1,22 @@
+package com.horizonzy;
+
+import java.util.Collections;
+import java.util.Map;
+
+// ExistsRequirement represents a bare 'key'
+final class ExistsRequirement extends Requirement {
+
+    ExistsRequirement(String key) {
+        super(key, Operator.EXISTS, Collections.emptyList());
+    }
+
+    @Override
+    public boolean matches(Map<String, String> labels) {
+        return labels.containsKey(key);
+    }
+
+    @Override
+    public boolean matches(LabelAccessor labels) {
+        return labels.contains(key);
+    }
+}
@@ -0,0 +1,356 @@
+package com.horizonzy;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InaccessibleObjectException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A field selector such as 'status.phase=Running,spec.nodeName!=n1', matched directly against
+ * Java objects instead of string maps. Selectors are read with the label selector {@link Lexer};
+ * only '=', '==' and '!=' are supported, and values may be empty.
+ *
+ * <p>Every path segment is read from the current object with its getter ('getX()', or 'isX()'
+ * for booleans), the accessor of a record component, or a public field; no other method is ever
+ * called, so matching cannot change the object. It is resolved to a {@link MethodHandle}
+ * once per class and segment and cached; each term also remembers the accessors it used last, so
+ * matching objects of one class does no lookups at all. {@link Map}s along the path are read with
+ * {@link Map#get}.
+ * A null anywhere along the path reads as the empty string, and other values compare by
+ * {@link String#valueOf(Object)}.
+ */
+public final class FieldSelector {
+
+    // ACCESSORS caches the reader of every segment looked up on a class
+    private static final ClassValue<Map<String, Function<Object, Object>>> ACCESSORS =
+            new ClassValue<Map<String, Function<Object, Object>>>() {
+                @Override
+                protected Map<String, Function<Object, Object>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    // MISSING is cached for segments a class has no accessor for
+    private static final Function<Object, Object> MISSING = object -> null;
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private final List<Term> terms;
+
+    private final Term[] termArray;
+
+    private FieldSelector(List<Term> terms) {
+        this.terms = terms;
+        this.termArray = terms.toArray(new Term[0]);
+    }
+
+    public static FieldSelector parse(String selector) {
+        Lexer lexer = new Lexer(selector);
+        List<Term> terms = new ArrayList<>();
+        int token = lexer.next();
+        if (token == Token.EndOfStringToken) {
+            return new FieldSelector(Collections.<Term>emptyList());
+        }
+        for (; ; ) {
+            if (token != Token.IdentifierToken) {
+                throw new IllegalArgumentException(String.format(
+                        "found '%s', expected: field path", lexer.tokenText()));
+            }
+            String path = lexer.tokenText();
+            if (path.startsWith(".") || path.endsWith(".") || path.contains("..")) {
+                throw new IllegalArgumentException("invalid field path: " + path);
+            }
+
+            token = lexer.next();
+            if (token != Token.EqualsToken && token != Token.DoubleEqualsToken
+                    && token != Token.NotEqualsToken) {
+                throw new IllegalArgumentException(String.format(
+                        "found '%s', expected: '=', '==' or '!='", lexer.tokenText()));
+            }
+            boolean negated = token == Token.NotEqualsToken;
+
+            // the value may be empty, and 'in' and 'notin' are plain values here
+            token = lexer.next();
+            String value = "";
+            if (token == Token.IdentifierToken || token == Token.InToken
+                    || token == Token.NotInToken) {
+                value = lexer.tokenText();
+                token = lexer.next();
+            }
+            terms.add(new Term(path, negated, value));
+
+            if (token == Token.EndOfStringToken) {
+                return new FieldSelector(Collections.unmodifiableList(terms));
+            }
+            if (token != Token.CommaToken) {
+                throw new IllegalArgumentException(String.format(
+                        "found '%s', expected: ',' or end of string", lexer.tokenText()));
+            }
+            token = lexer.next();
+        }
+    }
+
+    /**
+     * Reports whether the object satisfies every term.
+     *
+     * @throws IllegalArgumentException if a path segment names no accessor on the object it is
+     *                                  read from
+     */
+    public boolean matches(Object object) {
+        for (Term term : termArray) {
+            if (!term.matches(object)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean empty() {
+        return terms.isEmpty();
+    }
+
+    // paths returns the field paths the selector reads, in selector order
+    public List<String> paths() {
+        List<String> paths = new ArrayList<>(terms.size());
+        for (Term term : terms) {
+            paths.add(term.path);
+        }
+        return paths;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Term term : terms) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(term.path).append(term.negated ? "!=" : "=").append(term.value);
+        }
+        return builder.toString();
+    }
+
+    // Term represents one 'path=value' or 'path!=value'
+    private static final class Term {
+
+        private final String path;
+
+        private final String[] segments;
+
+        private final boolean negated;
+
+        private final String value;
+
+        // lastAccessors remembers the accessor last used for every segment, so objects of one
+        // class skip the per-class cache and type checks
+        private final Accessor[] lastAccessors;
+
+        Term(String path, boolean negated, String value) {
+            this.path = path;
+            this.segments = path.split("\\.");
+            this.negated = negated;
+            this.value = value;
+            this.lastAccessors = new Accessor[segments.length];
+        }
+
+        boolean matches(Object object) {
+            Object current = object;
+            for (int i = 0; i < segments.length && current != null; i++) {
+                Accessor accessor = lastAccessors[i];
+                if (accessor == null || accessor.type != current.getClass()) {
+                    accessor = new Accessor(current.getClass(), accessor(current.getClass(),
+                            segments[i]));
+                    lastAccessors[i] = accessor;
+                }
+                current = accessor.read(current, segments[i]);
+            }
+            String actual = current == null ? "" : String.valueOf(current);
+            return value.equals(actual) != negated;
+        }
+    }
+
+    // Accessor represents the reader of a segment for objects of one class
+    private static final class Accessor {
+
+        private final Class<?> type;
+
+        private final Function<Object, Object> reader;
+
+        Accessor(Class<?> type, Function<Object, Object> reader) {
+            this.type = type;
+            this.reader = reader;
+        }
+
+        Object read(Object object, String segment) {
+            if (reader == MISSING) {
+                throw new IllegalArgumentException(
+                        "no field '" + segment + "' on " + type.getName());
+            }
+            return reader.apply(object);
+        }
+    }
+
+    // accessor returns the cached reader of a segment for objects of a class
+    private static Function<Object, Object> accessor(Class<?> type, String segment) {
+        Map<String, Function<Object, Object>> accessors = ACCESSORS.get(type);
+        Function<Object, Object> accessor = accessors.get(segment);
+        if (accessor == null) {
+            if (Map.class.isAssignableFrom(type)) {
+                accessor = object -> ((Map<?, ?>) object).get(segment);
+            } else {
+                MethodHandle handle = lookup(type, segment);
+                accessor = handle == null ? MISSING : reader(handle);
+            }
+            accessors.put(segment, accessor);
+        }
+        return accessor;
+    }
+
+    // lookup finds the getter, record component accessor or public field of a segment, or
+    // returns null. Other methods are never called, since a selector usually comes from request
+    // text and a method like 'poll' or 'next' would change the object while matching it.
+    private static MethodHandle lookup(Class<?> type, String segment) {
+        String property = Character.toUpperCase(segment.charAt(0)) + segment.substring(1);
+        List<String> names = new ArrayList<>();
+        // getAndIncrement and the like are updates that merely look like getters
+        if (!property.startsWith("And")) {
+            names.add("get" + property);
+        }
+        names.add("is" + property);
+        if (isRecordComponent(type, segment)) {
+            names.add(segment);
+        }
+        for (String name : names) {
+            Method method;
+            try {
+                method = type.getMethod(name);
+            } catch (NoSuchMethodException e) {
+                continue;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == void.class || Modifier.isStatic(method.getModifiers())
+                    || name.equals("is" + property) && returnType != boolean.class
+                    && returnType != Boolean.class) {
+                continue;
+            }
+            MethodHandle handle = publicMethod(type, name);
+            if (handle != null) {
+                return handle;
+            }
+            try {
+                // public methods of classes that are not public, nor reached through a public
+                // supertype, need this
+                method.setAccessible(true);
+                return MethodHandles.lookup().unreflect(method);
+            } catch (IllegalAccessException | InaccessibleObjectException | SecurityException e) {
+                // try the next name
+            }
+        }
+        try {
+            Field field = type.getField(segment);
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                return MethodHandles.lookup().unreflectGetter(field);
+            }
+        } catch (NoSuchFieldException | IllegalAccessException | InaccessibleObjectException
+                | SecurityException e) {
+            // no usable field either
+        }
+        return null;
+    }
+
+    // isRecordComponent reports whether type is a record with a component named segment
+    private static boolean isRecordComponent(Class<?> type, String segment) {
+        Class<?> superclass = type.getSuperclass();
+        if (superclass == null || !"java.lang.Record".equals(superclass.getName())) {
+            return false;
+        }
+        try {
+            Field field = type.getDeclaredField(segment);
+            return !Modifier.isStatic(field.getModifiers());
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    // publicMethod returns a handle for the public no-argument method name through the first
+    // public class or interface among type and its supertypes that has it, so methods of
+    // classes a module does not export, such as List.size on Arrays$ArrayList, stay readable.
+    // It returns null if there is no such type.
+    private static MethodHandle publicMethod(Class<?> type, String name) {
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        Set<Class<?>> seen = new HashSet<>();
+        pending.add(type);
+        while (!pending.isEmpty()) {
+            Class<?> candidate = pending.poll();
+            if (!seen.add(candidate)) {
+                continue;
+            }
+            if (Modifier.isPublic(candidate.getModifiers())) {
+                try {
+                    Method method = candidate.getMethod(name);
+                    return MethodHandles.publicLookup().findVirtual(candidate, name,
+                            MethodType.methodType(method.getReturnType()));
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    // look further up
+                }
+            }
+            if (candidate.getSuperclass() != null) {
+                pending.add(candidate.getSuperclass());
+            }
+            pending.addAll(Arrays.asList(candidate.getInterfaces()));
+        }
+        return null;
+    }
+
+    // reader spins the handle into a Function the JIT can inline like a lambda, falling back to
+    // invoking the handle where the metafactory cannot link to it, e.g. for fields
+    private static Function<Object, Object> reader(MethodHandle handle) {
+        MethodType type = handle.type();
+        CallSite site;
+        try {
+            site = LambdaMetafactory.metafactory(MethodHandles.lookup(), "apply",
+                    MethodType.methodType(Function.class), GETTER,
+                    handle, type.changeReturnType(type.wrap().returnType()));
+        } catch (LambdaConversionException e) {
+            MethodHandle generic = handle.asType(GETTER);
+            return object -> {
+                try {
+                    return (Object) generic.invokeExact(object);
+                } catch (RuntimeException | Error t) {
+                    throw t;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            };
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            Function<Object, Object> reader = (Function<Object, Object>) site.getTarget()
+                    .invoke();
+            return reader;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // the factory of a non-capturing lambda throws nothing checked
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.horizonzy;
+
+import java.util.List;
+import java.util.Map;
+
+// InRequirement represents 'key in (v1,v2,...)'
+final class InRequirement extends Requirement {
+
+    private final ValueSet values;
+
+    InRequirement(String key, List<String> strValues) {
+        super(key, Operator.IN, strValues);
+        this.values = valueSet();
+    }
+
+    @Override
+    public boolean matches(Map<String, String> labels) {
+        return values.contains(labels.get(key));
+    }
+
+    @Override
+    public boolean matches(LabelAccessor labels) {
+        return values.contains(labels.get(key));
+    }
+}
@@ -0,0 +1,86 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A selector that reports its matches to {@link SelectorMetrics}, orders its requirements
+ * adaptively, or both. Plain selectors never pay for either: {@link Selector#parse(String)} only
+ * builds one while a listener is registered, and {@link InternalSelector#adaptive()} returns one.
+ */
+final class InstrumentedSelector extends InternalSelector {
+
+    // reporting is set for selectors parsed while a listener was registered; they report while
+    // one still is
+    private final boolean reporting;
+
+    // adaptiveOrder is the evaluation order of matches when adaptive ordering is enabled
+    private volatile AdaptiveOrder adaptiveOrder;
+
+    InstrumentedSelector(List<Requirement> requirements, boolean reporting, boolean adaptive) {
+        super(requirements);
+        this.reporting = reporting;
+        if (adaptive) {
+            adaptiveOrder = new AdaptiveOrder(requirements);
+        }
+    }
+
+    @Override
+    public InternalSelector adaptive() {
+        if (adaptiveOrder != null) {
+            return this;
+        }
+        InternalSelector copy = new InstrumentedSelector(
+                new ArrayList<>(getRequirementList()), reporting, true);
+        return isFrozen() ? copy.freeze() : copy;
+    }
+
+    @Override
+    public boolean isAdaptive() {
+        return adaptiveOrder != null;
+    }
+
+    @Override
+    List<Requirement> evaluationOrder() {
+        AdaptiveOrder order = adaptiveOrder;
+        return order == null ? getRequirementList() : order.order();
+    }
+
+    @Override
+    void changed() {
+        super.changed();
+        if (adaptiveOrder != null) {
+            adaptiveOrder = new AdaptiveOrder(getRequirementList());
+        }
+    }
+
+    @Override
+    public boolean matches(Map<String, String> labels) {
+        if (reporting) {
+            SelectorMetrics listener = Selector.metrics();
+            if (listener != null) {
+                return matchesReporting(labels, listener);
+            }
+        }
+        AdaptiveOrder order = adaptiveOrder;
+        if (order != null) {
+            return order.matches(labels);
+        }
+        return super.matches(labels);
+    }
+
+    // matchesReporting is matches in canonical order, reporting every evaluation
+    private boolean matchesReporting(Map<String, String> labels, SelectorMetrics listener) {
+        boolean matched = true;
+        for (Requirement requirement : getRequirementList()) {
+            matched = requirement.matches(labels);
+            listener.requirementEvaluated(requirement, matched);
+            if (!matched) {
+                break;
+            }
+        }
+        listener.selectorEvaluated(this, matched);
+        return matched;
+    }
+}
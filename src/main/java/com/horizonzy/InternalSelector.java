@@ -1,25 +1,115 @@
 package com.horizonzy;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class InternalSelector {
 
+    // CANONICAL_ORDER sorts requirements by key, operator and values, treating '=' and '=='
+    // alike, so that equal selectors have the same canonical requirements
+    private static final Comparator<Requirement> CANONICAL_ORDER = Comparator
+            .comparing(Requirement::getKey)
+            .thenComparingInt(InternalSelector::canonicalOrdinal)
+            .thenComparing(Requirement::getStrValues, InternalSelector::compareValues);
+
     private List<Requirement> requirementList;
 
+    // canonical holds the distinct requirements in CANONICAL_ORDER, computed on first use and
+    // dropped whenever the selector changes
+    private volatile Requirement[] canonical;
+
+    private int hash;
+
+    // keys caches the distinct requirement keys, dropped whenever the selector changes
+    private volatile Set<String> keys;
+
+    // requiredKeyMask caches the signature bits of keys every match must have; valid while
+    // requiredKeyMaskComputed is set
+    private long requiredKeyMask;
+
+    private volatile boolean requiredKeyMaskComputed;
+
+    private boolean frozen;
+
     public InternalSelector() {
         requirementList = new ArrayList<>();
     }
 
+    // InternalSelector takes ownership of requirements, which must already be sorted
+    InternalSelector(List<Requirement> requirements) {
+        requirementList = requirements;
+    }
+
     public void addRequire(Requirement requirement) {
+        if (frozen) {
+            throw new UnsupportedOperationException("selector is frozen: " + this);
+        }
         requirementList.add(requirement);
+        changed();
     }
 
     public void sort() {
+        if (frozen) {
+            throw new UnsupportedOperationException("selector is frozen: " + this);
+        }
         requirementList.sort(Comparator.comparing(Requirement::getKey));
+        changed();
+    }
+
+    /**
+     * Returns an adaptively ordered copy of this selector: its {@link #matches(Map)} samples how
+     * often each requirement rejects and periodically reorders evaluation so the cheapest, most
+     * rejecting requirements run first. Results are unchanged, and {@link #getRequirementList()}
+     * and {@link #toString()} keep the canonical order. The copy is frozen if this selector is;
+     * this selector itself is left as it is, since a frozen one may be shared.
+     */
+    public InternalSelector adaptive() {
+        InternalSelector copy = new InstrumentedSelector(new ArrayList<>(requirementList), false,
+                true);
+        return frozen ? copy.freeze() : copy;
+    }
+
+    public boolean isAdaptive() {
+        return false;
+    }
+
+    // evaluationOrder returns the order matches currently evaluates requirements in
+    List<Requirement> evaluationOrder() {
+        return requirementList;
+    }
+
+    // changed drops everything derived from the requirements
+    void changed() {
+        canonical = null;
+        keys = null;
+        requiredKeyMaskComputed = false;
+        hash = 0;
+    }
+
+    /**
+     * Makes this selector immutable so a single instance can be shared between threads. Further
+     * calls to {@link #addRequire(Requirement)} or {@link #sort()} throw.
+     */
+    public InternalSelector freeze() {
+        if (!frozen) {
+            requirementList = Collections.unmodifiableList(requirementList);
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
     }
 
     public boolean matches(Map<String, String> labels) {
@@ -31,6 +121,79 @@ public class InternalSelector {
         return true;
     }
 
+    /**
+     * Matches labels read through an accessor. Requirements are evaluated in order, without
+     * adaptive ordering or reporting to {@link SelectorMetrics}.
+     */
+    public boolean matches(LabelAccessor labels) {
+        for (Requirement requirement : requirementList) {
+            if (!requirement.matches(labels)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matches labels whose {@link KeySignature#of(Map)} is given, rejecting them without any
+     * lookup when the signature lacks a key this selector requires.
+     */
+    public boolean matches(Map<String, String> labels, long signature) {
+        long mask = requiredKeyMask();
+        return (signature & mask) == mask && matches(labels);
+    }
+
+    /**
+     * Returns the {@link KeySignature} bits of the keys that '=', '==', 'in', 'exists', 'gt' and
+     * 'lt' requirements need present in every matching label set.
+     */
+    public long requiredKeyMask() {
+        if (requiredKeyMaskComputed) {
+            return requiredKeyMask;
+        }
+        long mask = 0;
+        for (Requirement requirement : requirementList) {
+            Operator type = requirement.getOperatorType();
+            if (type == Operator.EQUALS || type == Operator.DOUBLE_EQUALS || type == Operator.IN
+                    || type == Operator.EXISTS || type == Operator.GREATER_THAN
+                    || type == Operator.LESS_THAN) {
+                mask |= KeySignature.bit(requirement.getKey());
+            }
+        }
+        requiredKeyMask = mask;
+        requiredKeyMaskComputed = true;
+        return mask;
+    }
+
+    /**
+     * Returns a BitSet with bit i set when objects.get(i) matches. Large inputs are matched in
+     * parallel on the common fork/join pool; the selector must not be modified meanwhile.
+     */
+    public BitSet matchAll(List<? extends Map<String, String>> objects) {
+        return matchAll(objects, ForkJoinPool.commonPool());
+    }
+
+    public BitSet matchAll(List<? extends Map<String, String>> objects, ForkJoinPool pool) {
+        return BulkMatch.matchAll(this, objects, pool);
+    }
+
+    public BitSet matchAll(Map<String, String>[] objects) {
+        return matchAll(objects, ForkJoinPool.commonPool());
+    }
+
+    public BitSet matchAll(Map<String, String>[] objects, ForkJoinPool pool) {
+        return BulkMatch.matchAll(this, Arrays.asList(objects), pool);
+    }
+
+    /**
+     * Compiles the current requirements into a predicate with all keys, operators and values
+     * baked in as constants. It matches exactly like {@link #matches(Map)}, which stays the
+     * reference implementation; later changes to this selector are not reflected.
+     */
+    public Predicate<Map<String, String>> compile() {
+        return SelectorCompiler.compile(this);
+    }
+
     public boolean empty() {
         return requirementList == null || requirementList.size() == 0;
     }
@@ -51,10 +214,117 @@ public class InternalSelector {
         return new Tuple<>("", false);
     }
 
+    /**
+     * Returns the distinct keys the requirements of this selector look at. Only changes to these
+     * labels can change whether a label set matches.
+     */
+    public Set<String> keys() {
+        Set<String> result = keys;
+        if (result == null) {
+            Set<String> distinct = new LinkedHashSet<>();
+            for (Requirement requirement : requirementList) {
+                distinct.add(requirement.getKey());
+            }
+            result = Collections.unmodifiableSet(distinct);
+            keys = result;
+        }
+        return result;
+    }
+
     public List<Requirement> getRequirementList() {
         return requirementList;
     }
 
+    /**
+     * Reports whether every label set matching this selector also matches the other one, so a
+     * caller that saw this selector match can skip evaluating the other. Only label sets with
+     * valid keys and values are considered; a selector nothing can match implies every selector.
+     */
+    public boolean implies(InternalSelector other) {
+        return SelectorAnalysis.implies(this, other);
+    }
+
+    /**
+     * Reports whether some label set with valid keys and values matches both selectors.
+     */
+    public boolean intersects(InternalSelector other) {
+        return SelectorAnalysis.intersects(this, other);
+    }
+
+    /**
+     * Returns a selector matching exactly the label sets both selectors match. It matches nothing
+     * when {@link #intersects(InternalSelector)} is false.
+     */
+    public InternalSelector intersection(InternalSelector other) {
+        return SelectorAnalysis.intersection(this, other);
+    }
+
+    /**
+     * Returns the shared instance structurally equal to this selector, freezing this selector if
+     * it becomes the shared one. Shared instances are only weakly retained.
+     */
+    public InternalSelector intern() {
+        return SelectorInterner.shared().intern(this);
+    }
+
+    private Requirement[] canonical() {
+        Requirement[] requirements = canonical;
+        if (requirements == null) {
+            requirements = requirementList.toArray(new Requirement[0]);
+            Arrays.sort(requirements, CANONICAL_ORDER);
+            int size = Math.min(requirements.length, 1);
+            for (int i = 1; i < requirements.length; i++) {
+                if (!requirements[i].equals(requirements[size - 1])) {
+                    requirements[size++] = requirements[i];
+                }
+            }
+            requirements = Arrays.copyOf(requirements, size);
+            canonical = requirements;
+        }
+        return requirements;
+    }
+
+    private static int canonicalOrdinal(Requirement requirement) {
+        Operator type = Requirement.canonical(requirement.getOperatorType());
+        return type == null ? -1 : type.ordinal();
+    }
+
+    private static int compareValues(List<String> a, List<String> b) {
+        for (int i = 0; i < a.size() && i < b.size(); i++) {
+            int c = a.get(i).compareTo(b.get(i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    /**
+     * Selectors are equal when they have the same distinct requirements in any order. Use frozen
+     * selectors as map keys; changing a selector changes its hash code.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof InternalSelector)) {
+            return false;
+        }
+        InternalSelector other = (InternalSelector) o;
+        return hashCode() == other.hashCode() && Arrays.equals(canonical(), other.canonical());
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = Arrays.hashCode(canonical());
+            hash = h;
+        }
+        return h;
+    }
+
     @Override
     public String toString() {
         return requirementList.stream().map(Requirement::toString).collect(Collectors.joining(","));
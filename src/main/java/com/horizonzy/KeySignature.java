@@ -0,0 +1,29 @@
+package com.horizonzy;
+
+import java.util.Map;
+
+/**
+ * A 64-bit Bloom-style summary of which keys a label set has: every key sets one bit chosen by
+ * its hash. Compute it once per object and pass it to
+ * {@link InternalSelector#matches(Map, long)}, which rejects objects missing a bit of the
+ * selector's {@link InternalSelector#requiredKeyMask()} without looking at any label. Distinct
+ * keys may share a bit, so a signature can only prove a key absent, never present.
+ */
+public final class KeySignature {
+
+    private KeySignature() {
+    }
+
+    public static long of(Map<String, String> labels) {
+        long signature = 0;
+        for (String key : labels.keySet()) {
+            signature |= bit(key);
+        }
+        return signature;
+    }
+
+    public static long bit(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return 1L << (h >>> 26);
+    }
+}
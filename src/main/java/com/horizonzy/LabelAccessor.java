@@ -0,0 +1,63 @@
+package com.horizonzy;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Read-only access to a label set that need not be a {@link Map}, so objects keeping their labels
+ * in arrays, messages or their own fields can be matched by
+ * {@link InternalSelector#matches(LabelAccessor)} without copying them into a map first.
+ */
+public interface LabelAccessor {
+
+    // get returns the value of the label, or null if there is none
+    String get(String key);
+
+    default boolean contains(String key) {
+        return get(key) != null;
+    }
+
+    static LabelAccessor of(Map<String, String> labels) {
+        return new LabelAccessor() {
+            @Override
+            public String get(String key) {
+                return labels.get(key);
+            }
+
+            @Override
+            public boolean contains(String key) {
+                return labels.containsKey(key);
+            }
+        };
+    }
+
+    /**
+     * Returns an accessor for labels held in parallel arrays, keys[i] having values[i]. The keys
+     * must be sorted in ascending order and distinct; lookups are binary searches. The arrays are
+     * not copied.
+     */
+    static LabelAccessor sorted(String[] keys, String[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException(
+                    "keys and values differ in length: " + keys.length + " != " + values.length);
+        }
+        return new LabelAccessor() {
+            @Override
+            public String get(String key) {
+                int i = Arrays.binarySearch(keys, key);
+                return i >= 0 ? values[i] : null;
+            }
+
+            @Override
+            public boolean contains(String key) {
+                return Arrays.binarySearch(keys, key) >= 0;
+            }
+        };
+    }
+
+    // of returns an accessor that looks labels up with a function returning null when absent
+    static LabelAccessor of(Function<String, String> lookup) {
+        return lookup::apply;
+    }
+}
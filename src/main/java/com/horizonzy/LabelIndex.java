@@ -0,0 +1,266 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An inverted index from labels to objects. Keeps one posting set per label key and one per
+ * key=value pair, so {@link #select(InternalSelector)} only visits the objects in the smallest
+ * posting set of the selector's '=', '==', 'in' and 'exists' requirements instead of scanning
+ * every object. Selectors made only of '!=', 'notin' and '!' requirements are answered by
+ * removing their postings from the full object set.
+ *
+ * <p>Safe for concurrent use; writers are serialized and readers run in parallel.
+ */
+public class LabelIndex<T> {
+
+    private final Map<T, Map<String, String>> objects = new HashMap<>();
+
+    private final Map<String, Set<T>> byKey = new HashMap<>();
+
+    private final Map<String, Map<String, Set<T>>> byKeyValue = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds the object, or replaces its labels if it is already indexed.
+     *
+     * @throws IllegalArgumentException if a label key or value is null
+     */
+    public void put(T object, Map<String, String> labels) {
+        Map<String, String> copy = labels == null || labels.isEmpty()
+                ? Collections.<String, String>emptyMap()
+                : Collections.unmodifiableMap(new HashMap<>(labels));
+        for (Entry<String, String> entry : copy.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new IllegalArgumentException("label key is null: " + object);
+            }
+            if (entry.getValue() == null) {
+                throw new IllegalArgumentException(
+                        "value of label '" + entry.getKey() + "' is null: " + object);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            Map<String, String> previous = objects.put(object, copy);
+            if (previous != null) {
+                for (Entry<String, String> entry : previous.entrySet()) {
+                    if (!entry.getValue().equals(copy.get(entry.getKey()))) {
+                        unlink(object, entry.getKey(), entry.getValue(),
+                                !copy.containsKey(entry.getKey()));
+                    }
+                }
+            }
+            for (Entry<String, String> entry : copy.entrySet()) {
+                String old = previous == null ? null : previous.get(entry.getKey());
+                if (!entry.getValue().equals(old)) {
+                    link(object, entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(T object) {
+        lock.writeLock().lock();
+        try {
+            Map<String, String> previous = objects.remove(object);
+            if (previous == null) {
+                return false;
+            }
+            for (Entry<String, String> entry : previous.entrySet()) {
+                unlink(object, entry.getKey(), entry.getValue(), true);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, String> labels(T object) {
+        lock.readLock().lock();
+        try {
+            return objects.get(object);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return objects.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<T> select(InternalSelector selector) {
+        lock.readLock().lock();
+        try {
+            List<Requirement> requirements = selector.getRequirementList();
+            Requirement driver = null;
+            int driverSize = Integer.MAX_VALUE;
+            for (Requirement requirement : requirements) {
+                int size = postingSize(requirement);
+                if (size < driverSize) {
+                    driver = requirement;
+                    driverSize = size;
+                }
+            }
+            if (driver == null) {
+                return selectByComplement(requirements);
+            }
+
+            List<T> result = new ArrayList<>();
+            for (Set<T> posting : postings(driver)) {
+                for (T object : posting) {
+                    if (matchesOthers(requirements, driver, objects.get(object))) {
+                        result.add(object);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // postingSize returns the number of candidates a positive requirement yields, or
+    // Integer.MAX_VALUE for requirements that can only be answered by complement.
+    private int postingSize(Requirement requirement) {
+        if (!isPositive(requirement)) {
+            return Integer.MAX_VALUE;
+        }
+        int size = 0;
+        for (Set<T> posting : postings(requirement)) {
+            size += posting.size();
+        }
+        return size;
+    }
+
+    private List<Set<T>> postings(Requirement requirement) {
+        String key = requirement.getKey();
+        Operator type = requirement.getOperatorType();
+        if (type == null) {
+            return Collections.emptyList();
+        }
+        switch (type) {
+            case EQUALS:
+            case DOUBLE_EQUALS:
+            case IN:
+            case NOT_EQUALS:
+            case NOT_IN:
+                Map<String, Set<T>> values = byKeyValue.get(key);
+                if (values == null) {
+                    return Collections.emptyList();
+                }
+                Collection<String> distinct = requirement.getStrValues();
+                if (distinct.size() > 1) {
+                    distinct = new HashSet<>(distinct);
+                }
+                List<Set<T>> result = new ArrayList<>(distinct.size());
+                for (String value : distinct) {
+                    Set<T> posting = values.get(value);
+                    if (posting != null) {
+                        result.add(posting);
+                    }
+                }
+                return result;
+            case EXISTS:
+            case DOES_NOT_EXIST:
+            case GREATER_THAN:
+            case LESS_THAN:
+                Set<T> posting = byKey.get(key);
+                return posting == null ? Collections.<Set<T>>emptyList()
+                        : Collections.singletonList(posting);
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    private static boolean isPositive(Requirement requirement) {
+        Operator type = requirement.getOperatorType();
+        return type != Operator.NOT_EQUALS && type != Operator.NOT_IN
+                && type != Operator.DOES_NOT_EXIST;
+    }
+
+    private List<T> selectByComplement(List<Requirement> requirements) {
+        Set<T> excluded = new HashSet<>();
+        for (Requirement requirement : requirements) {
+            for (Set<T> posting : postings(requirement)) {
+                excluded.addAll(posting);
+            }
+        }
+        List<T> result = new ArrayList<>(objects.size() - excluded.size());
+        for (T object : objects.keySet()) {
+            if (!excluded.contains(object)) {
+                result.add(object);
+            }
+        }
+        return result;
+    }
+
+    private static boolean matchesOthers(List<Requirement> requirements, Requirement driver,
+            Map<String, String> labels) {
+        for (Requirement requirement : requirements) {
+            if (requirement != driver && !requirement.matches(labels)) {
+                return false;
+            }
+        }
+        // gt and lt are driven by the key posting, their values still need checking
+        Operator type = driver.getOperatorType();
+        return type != Operator.GREATER_THAN && type != Operator.LESS_THAN
+                || driver.matches(labels);
+    }
+
+    private void link(T object, String key, String value) {
+        Set<T> keyPosting = byKey.get(key);
+        if (keyPosting == null) {
+            keyPosting = new HashSet<>();
+            byKey.put(key, keyPosting);
+        }
+        keyPosting.add(object);
+
+        Map<String, Set<T>> values = byKeyValue.get(key);
+        if (values == null) {
+            values = new HashMap<>();
+            byKeyValue.put(key, values);
+        }
+        Set<T> valuePosting = values.get(value);
+        if (valuePosting == null) {
+            valuePosting = new HashSet<>();
+            values.put(value, valuePosting);
+        }
+        valuePosting.add(object);
+    }
+
+    private void unlink(T object, String key, String value, boolean keyRemoved) {
+        Map<String, Set<T>> values = byKeyValue.get(key);
+        Set<T> valuePosting = values.get(value);
+        valuePosting.remove(object);
+        if (valuePosting.isEmpty()) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                byKeyValue.remove(key);
+            }
+        }
+        if (keyRemoved) {
+            Set<T> keyPosting = byKey.get(key);
+            keyPosting.remove(object);
+            if (keyPosting.isEmpty()) {
+                byKey.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.horizonzy;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe symbol table of label keys and values. Each distinct string is interned once into
+ * a canonical instance, and the table remembers whether that string already passed key or value
+ * validation, so repeated keys and values are neither validated nor allocated again. Selectors built from the table share their key and value strings, which lets
+ * equality checks succeed on identity.
+ *
+ * <p>Retention is bounded by {@link #capacity()} and follows the working set: lookups mark a
+ * symbol as referenced, and when the table is full a clock sweep evicts symbols not referenced
+ * since the previous sweep until a quarter of the capacity is free, so one-off strings seen
+ * during a resync do not crowd out the keys and values in steady use. An evicted string that
+ * comes back is interned into a new canonical instance. Strings that fail validation are never
+ * interned.
+ */
+public final class LabelSymbols {
+
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final LabelSymbols SHARED = new LabelSymbols(DEFAULT_CAPACITY);
+
+    private final ConcurrentMap<String, Symbol> symbols = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    // count is the number of symbols, reserved before a symbol is added so the table never
+    // grows past capacity
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final Object sweepLock = new Object();
+
+    private final int capacity;
+
+    public LabelSymbols(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    // shared returns the process-wide table used by the parser and Requirement.newRequirement
+    public static LabelSymbols shared() {
+        return SHARED;
+    }
+
+    /**
+     * Validates a label key and returns its canonical instance.
+     */
+    public String canonicalKey(String key) {
+        Symbol symbol = lookup(key);
+        if (symbol != null && symbol.validKey) {
+            return symbol.text;
+        }
+        Selector.validateLabelKey(key);
+        symbol = symbol != null ? symbol : intern(key);
+        if (symbol == null) {
+            return key;
+        }
+        symbol.validKey = true;
+        return symbol.text;
+    }
+
+    /**
+     * Validates a label value and returns its canonical instance.
+     */
+    public String canonicalValue(String value) {
+        Symbol symbol = lookup(value);
+        if (symbol != null && symbol.validValue) {
+            return symbol.text;
+        }
+        Selector.validateLabelValue(value);
+        symbol = symbol != null ? symbol : intern(value);
+        if (symbol == null) {
+            return value;
+        }
+        symbol.validValue = true;
+        return symbol.text;
+    }
+
+    // id returns the id of the symbol text is currently interned as, or -1 if it is not in the
+    // table. Every symbol gets a new id, so an id that changed means the string was evicted and
+    // interned again; ids are not stable enough to hand out.
+    int id(String text) {
+        Symbol symbol = symbols.get(text);
+        return symbol == null ? -1 : symbol.id;
+    }
+
+    public int size() {
+        return count.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private Symbol lookup(String text) {
+        Symbol symbol = symbols.get(text);
+        // a racy, unconditional write would keep the cache line of hot symbols bouncing
+        if (symbol != null && !symbol.referenced) {
+            symbol.referenced = true;
+        }
+        return symbol;
+    }
+
+    // intern returns the symbol of text, or null if the table is full and nothing could be
+    // evicted
+    private Symbol intern(String text) {
+        Symbol symbol = symbols.get(text);
+        if (symbol != null) {
+            return symbol;
+        }
+        if (!reserve()) {
+            sweep();
+            if (!reserve()) {
+                return null;
+            }
+        }
+        Symbol created = new Symbol(text, nextId.getAndIncrement() & Integer.MAX_VALUE);
+        symbol = symbols.putIfAbsent(text, created);
+        if (symbol != null) {
+            count.decrementAndGet();
+            return symbol;
+        }
+        return created;
+    }
+
+    private boolean reserve() {
+        for (; ; ) {
+            int current = count.get();
+            if (current >= capacity) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // sweep evicts symbols not referenced since the last sweep, clearing the mark of the others,
+    // until a quarter of the capacity is free. Two rounds bound it even when every symbol is hot.
+    private void sweep() {
+        synchronized (sweepLock) {
+            int target = capacity - Math.max(1, capacity / 4);
+            for (int round = 0; round < 2 && count.get() > target; round++) {
+                for (Symbol symbol : symbols.values()) {
+                    if (count.get() <= target) {
+                        return;
+                    }
+                    if (symbol.referenced) {
+                        symbol.referenced = false;
+                    } else if (symbols.remove(symbol.text, symbol)) {
+                        count.decrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Symbol {
+
+        private final String text;
+
+        private final int id;
+
+        // validKey and validValue only ever go from false to true, so a stale read merely
+        // validates once more.
+        private volatile boolean validKey;
+
+        private volatile boolean validValue;
+
+        // referenced is the clock bit, set by lookups and cleared by sweeps; races only make
+        // eviction slightly less precise
+        private boolean referenced;
+
+        Symbol(String text, int id) {
+            this.text = text;
+            this.id = id;
+        }
+    }
+}
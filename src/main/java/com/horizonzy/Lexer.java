@@ -3,87 +3,172 @@ package com.horizonzy;
 
 public class Lexer {
 
-    private byte[] bytes;
+    private final CharSequence input;
+
+    private final int length;
 
     private int pos;
 
-    public Lexer(String s) {
+    private int tokenStart;
+
+    private int tokenEnd;
+
+    private int token = Token.ErrorToken;
+
+    public Lexer(CharSequence s) {
         this(s, 0);
     }
 
-    public Lexer(String s, int pos) {
-        this.bytes = s.getBytes();
+    public Lexer(CharSequence s, int pos) {
+        this.input = s;
+        this.length = s.length();
         this.pos = pos;
     }
 
-    public byte read() {
-        byte b = 0;
-        if (this.pos < bytes.length) {
-            b = bytes[pos];
+    public char read() {
+        char ch = 0;
+        if (this.pos < length) {
+            ch = input.charAt(pos);
             pos++;
         }
-        return b;
+        return ch;
     }
 
     public void unread() {
         pos--;
     }
 
-    public Tuple<Integer, String> scanIDOrKeyword() {
-        byte[] buffer = new byte[bytes.length];
-        int index = 0;
-        for (; ; ) {
-            byte ch = read();
-            if (ch == 0) {
-                break;
-            } else if (Selector.isSpecialSymbol(ch) || Selector.isWhiteSpace(ch)) {
-                unread();
+    /**
+     * Scans the next token and returns its type, one of the {@link Token} constants. The token
+     * spans [{@link #tokenStart()}, {@link #tokenEnd()}) of the input; nothing is allocated until
+     * {@link #tokenText()} is asked for.
+     */
+    public int next() {
+        while (pos < length && Selector.isWhiteSpace(input.charAt(pos))) {
+            pos++;
+        }
+        tokenStart = pos;
+        if (pos >= length || input.charAt(pos) == 0) {
+            tokenEnd = pos;
+            token = Token.EndOfStringToken;
+        } else if (Selector.isSpecialSymbol(input.charAt(pos))) {
+            token = scanSymbol();
+        } else {
+            token = scanIdentifier();
+        }
+        return token;
+    }
+
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    public int tokenEnd() {
+        return tokenEnd;
+    }
+
+    public CharSequence getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the literal of the last token returned by {@link #next()}. Only identifiers are
+     * copied out of the input, operators and punctuation map to shared constants.
+     */
+    public String tokenText() {
+        switch (token) {
+            case Token.IdentifierToken:
+                return input.subSequence(tokenStart, tokenEnd).toString();
+            case Token.EndOfStringToken:
+                return "";
+            default:
+                return Token.literal(token);
+        }
+    }
+
+    private int scanIdentifier() {
+        int end = pos;
+        for (; end < length; end++) {
+            char ch = input.charAt(end);
+            if (ch == 0 || Selector.isSpecialSymbol(ch) || Selector.isWhiteSpace(ch)) {
                 break;
-            } else {
-                buffer[index++] = ch;
             }
         }
-        String s = new String(buffer, 0, index);
-
-        Integer token = Selector.string2Token.get(s);
-        if (token == null) {
-            return new Tuple<>(Token.IdentifierToken, s);
+        pos = end;
+        tokenEnd = end;
+        int len = tokenEnd - tokenStart;
+        if (len == 2 && regionEquals("in")) {
+            return Token.InToken;
         }
-        return new Tuple<>(token, s);
+        if (len == 5 && regionEquals("notin")) {
+            return Token.NotInToken;
+        }
+        return Token.IdentifierToken;
     }
 
-    public Tuple<Integer, String> scanSpecialSymbol() {
-        ScannedItem lastScannedItem = new ScannedItem();
-        byte[] buffer = new byte[bytes.length];
-        int index = 0;
+    private boolean regionEquals(String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (input.charAt(tokenStart + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        for (; ; ) {
-            byte ch = read();
-            if (ch == 0) {
+    // scanSymbol is a longest match over the symbol table, the only two-character symbols are
+    // "==" and "!=".
+    private int scanSymbol() {
+        char ch = input.charAt(pos++);
+        boolean followedByEquals = pos < length && input.charAt(pos) == '=';
+        int result;
+        switch (ch) {
+            case '=':
+                result = followedByEquals ? Token.DoubleEqualsToken : Token.EqualsToken;
                 break;
-            } else if (Selector.isSpecialSymbol(ch)) {
-                buffer[index++] = ch;
-                String symbol = new String(buffer, 0, index);
-                Integer token = Selector.string2Token.get(symbol);
-                if (token != null) {
-                    lastScannedItem = new ScannedItem(token, symbol);
-                } else if (lastScannedItem.getToken() != null) {
-                    unread();
-                    break;
-                }
-            } else {
-                unread();
+            case '!':
+                result = followedByEquals ? Token.NotEqualsToken : Token.DoesNotExistToken;
+                break;
+            case '(':
+                result = Token.OpenParToken;
+                break;
+            case ')':
+                result = Token.ClosedParToken;
+                break;
+            case ',':
+                result = Token.CommaToken;
+                break;
+            case '>':
+                result = Token.GreaterThanToken;
+                break;
+            default:
+                result = Token.LessThanToken;
                 break;
-            }
         }
-        if (lastScannedItem.getToken() == null) {
-            return new Tuple<>(Token.ErrorToken,
-                    "error expected: keyword found" + new String(buffer, 0, index).intern());
+        if (result == Token.DoubleEqualsToken || result == Token.NotEqualsToken) {
+            pos++;
         }
-        return new Tuple<>(lastScannedItem.getToken(), lastScannedItem.getLiteral());
+        tokenEnd = pos;
+        return result;
+    }
+
+    public Tuple<Integer, String> scanIDOrKeyword() {
+        tokenStart = pos;
+        token = scanIdentifier();
+        return new Tuple<>(token, tokenText());
     }
 
-    public byte skipWhiteSpaces(byte ch) {
+    public Tuple<Integer, String> scanSpecialSymbol() {
+        tokenStart = pos;
+        if (pos >= length || !Selector.isSpecialSymbol(input.charAt(pos))) {
+            tokenEnd = pos;
+            token = Token.ErrorToken;
+            return new Tuple<>(Token.ErrorToken, "error expected: keyword found");
+        }
+        token = scanSymbol();
+        return new Tuple<>(token, tokenText());
+    }
+
+    public char skipWhiteSpaces(char ch) {
         for (; ; ) {
             if (!Selector.isWhiteSpace(ch)) {
                 return ch;
@@ -93,16 +178,8 @@ public class Lexer {
     }
 
     public Tuple<Integer, String> lex() {
-        byte ch = skipWhiteSpaces(read());
-        if (ch == 0) {
-            return new Tuple<>(Token.EndOfStringToken, "");
-        } else if (Selector.isSpecialSymbol(ch)) {
-            unread();
-            return scanSpecialSymbol();
-        } else {
-            unread();
-            return scanIDOrKeyword();
-        }
+        int t = next();
+        return new Tuple<>(t, tokenText());
     }
 
 }
@@ -0,0 +1,376 @@
+package com.horizonzy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A read-only label index stored in a file and queried straight from a memory mapping, so
+ * reopening it after a restart costs one mmap instead of rebuilding a {@link LabelIndex}. Objects
+ * are identified by ordinals in the order they were written, with {@link #name(int)} giving back
+ * their names.
+ *
+ * <p>The file holds, as big-endian ints unless noted:
+ * <pre>
+ * header    magic, version, objects, strings, keys, and the positions of the sections below
+ * offsets   strings + 1 byte offsets into the string data
+ * strings   the sorted, distinct object names, keys and values, UTF-8 encoded
+ * objects   the string id of each object name
+ * keys      per key by ascending string id: key id, first value entry, value count,
+ *           posting start, posting length
+ * values    per key by ascending string id: value id, posting start, posting length
+ * postings  ascending object ordinals; a key's posting lists the objects having the key
+ * </pre>
+ *
+ * <p>Files are limited to 2 GB. Safe for concurrent use.
+ */
+public final class MappedLabelIndex {
+
+    private static final int MAGIC = 0x4B534C49;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_INTS = 11;
+
+    private static final int KEY_INTS = 5;
+
+    private static final int VALUE_INTS = 3;
+
+    private final ByteBuffer buffer;
+
+    private final int objectCount;
+
+    private final int stringCount;
+
+    private final int keyCount;
+
+    private final int offsetsPos;
+
+    private final int stringsPos;
+
+    private final int objectsPos;
+
+    private final int keysPos;
+
+    private final int valuesPos;
+
+    private final int postingsPos;
+
+    private MappedLabelIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a label index file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported label index version: " + buffer.getInt(4));
+        }
+        objectCount = buffer.getInt(8);
+        stringCount = buffer.getInt(12);
+        keyCount = buffer.getInt(16);
+        offsetsPos = buffer.getInt(20);
+        stringsPos = buffer.getInt(24);
+        objectsPos = buffer.getInt(28);
+        keysPos = buffer.getInt(32);
+        valuesPos = buffer.getInt(36);
+        postingsPos = buffer.getInt(40);
+    }
+
+    /**
+     * Maps an index file written by {@link #write(Path, Map)}.
+     */
+    public static MappedLabelIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedLabelIndex(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes an index of the objects, given as name to labels in ordinal order, replacing the
+     * file.
+     */
+    public static void write(Path file, Map<String, Map<String, String>> objects)
+            throws IOException {
+        TreeSet<String> distinct = new TreeSet<>();
+        // key -> value -> ordinals, and key -> ordinals
+        TreeMap<String, TreeMap<String, List<Integer>>> byKeyValue = new TreeMap<>();
+        TreeMap<String, List<Integer>> byKey = new TreeMap<>();
+        int ordinal = 0;
+        for (Entry<String, Map<String, String>> object : objects.entrySet()) {
+            distinct.add(object.getKey());
+            Map<String, String> labels = object.getValue() == null
+                    ? Collections.<String, String>emptyMap() : object.getValue();
+            for (Entry<String, String> label : labels.entrySet()) {
+                distinct.add(label.getKey());
+                distinct.add(label.getValue());
+                TreeMap<String, List<Integer>> values = byKeyValue.get(label.getKey());
+                if (values == null) {
+                    values = new TreeMap<>();
+                    byKeyValue.put(label.getKey(), values);
+                    byKey.put(label.getKey(), new ArrayList<Integer>());
+                }
+                List<Integer> posting = values.get(label.getValue());
+                if (posting == null) {
+                    posting = new ArrayList<>();
+                    values.put(label.getValue(), posting);
+                }
+                posting.add(ordinal);
+                byKey.get(label.getKey()).add(ordinal);
+            }
+            ordinal++;
+        }
+
+        String[] strings = distinct.toArray(new String[0]);
+        byte[][] encoded = new byte[strings.length][];
+        long stringBytes = 0;
+        for (int i = 0; i < strings.length; i++) {
+            encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+            stringBytes += encoded[i].length;
+        }
+        int valueCount = 0;
+        long postingInts = 0;
+        for (Entry<String, TreeMap<String, List<Integer>>> key : byKeyValue.entrySet()) {
+            valueCount += key.getValue().size();
+            postingInts += byKey.get(key.getKey()).size();
+            for (List<Integer> posting : key.getValue().values()) {
+                postingInts += posting.size();
+            }
+        }
+
+        long offsetsPos = HEADER_INTS * 4L;
+        long stringsPos = offsetsPos + (strings.length + 1) * 4L;
+        long objectsPos = stringsPos + stringBytes;
+        long keysPos = objectsPos + objects.size() * 4L;
+        long valuesPos = keysPos + byKeyValue.size() * KEY_INTS * 4L;
+        long postingsPos = valuesPos + valueCount * VALUE_INTS * 4L;
+        long size = postingsPos + postingInts * 4;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("label index too large: " + size + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putInt(VERSION).putInt(objects.size()).putInt(strings.length)
+                    .putInt(byKeyValue.size()).putInt((int) offsetsPos).putInt((int) stringsPos)
+                    .putInt((int) objectsPos).putInt((int) keysPos).putInt((int) valuesPos)
+                    .putInt((int) postingsPos);
+
+            int offset = 0;
+            for (byte[] bytes : encoded) {
+                out.putInt(offset);
+                offset += bytes.length;
+            }
+            out.putInt(offset);
+            for (byte[] bytes : encoded) {
+                out.put(bytes);
+            }
+            for (String name : objects.keySet()) {
+                out.putInt(id(strings, name));
+            }
+
+            int value = 0;
+            int posting = 0;
+            ByteBuffer values = out.duplicate();
+            values.position((int) valuesPos);
+            ByteBuffer postings = out.duplicate();
+            postings.position((int) postingsPos);
+            for (Entry<String, TreeMap<String, List<Integer>>> key : byKeyValue.entrySet()) {
+                List<Integer> keyPosting = byKey.get(key.getKey());
+                out.putInt(id(strings, key.getKey())).putInt(value).putInt(key.getValue().size())
+                        .putInt(posting).putInt(keyPosting.size());
+                posting += put(postings, keyPosting);
+                for (Entry<String, List<Integer>> entry : key.getValue().entrySet()) {
+                    values.putInt(id(strings, entry.getKey())).putInt(posting)
+                            .putInt(entry.getValue().size());
+                    posting += put(postings, entry.getValue());
+                    value++;
+                }
+            }
+            out.force();
+        }
+    }
+
+    private static int id(String[] strings, String string) {
+        return Arrays.binarySearch(strings, string);
+    }
+
+    private static int put(ByteBuffer postings, List<Integer> ordinals) {
+        for (int ordinal : ordinals) {
+            postings.putInt(ordinal);
+        }
+        return ordinals.size();
+    }
+
+    public int size() {
+        return objectCount;
+    }
+
+    public String name(int ordinal) {
+        if (ordinal < 0 || ordinal >= objectCount) {
+            throw new IndexOutOfBoundsException("ordinal: " + ordinal + ", size: " + objectCount);
+        }
+        return string(buffer.getInt(objectsPos + ordinal * 4));
+    }
+
+    /**
+     * Returns the ascending ordinals of the objects whose labels match the selector.
+     */
+    public int[] select(InternalSelector selector) {
+        BitSet selected = new BitSet(objectCount);
+        selected.set(0, objectCount);
+        for (Requirement requirement : selector.getRequirementList()) {
+            if (selected.isEmpty()) {
+                break;
+            }
+            selected.and(matching(requirement));
+        }
+        int[] ordinals = new int[selected.cardinality()];
+        int i = 0;
+        for (int ordinal = selected.nextSetBit(0); ordinal >= 0;
+                ordinal = selected.nextSetBit(ordinal + 1)) {
+            ordinals[i++] = ordinal;
+        }
+        return ordinals;
+    }
+
+    // matching returns the objects satisfying one requirement: those whose value of the key the
+    // requirement accepts, plus those without the key if it accepts a missing label
+    private BitSet matching(Requirement requirement) {
+        BitSet result = new BitSet(objectCount);
+        boolean acceptAbsent = requirement.matches(Collections.<String, String>emptyMap());
+        int key = key(requirement.getKey());
+        if (key < 0) {
+            if (acceptAbsent) {
+                result.set(0, objectCount);
+            }
+            return result;
+        }
+        int keyEntry = keysPos + key * KEY_INTS * 4;
+        int firstValue = buffer.getInt(keyEntry + 4);
+        int valueCount = buffer.getInt(keyEntry + 8);
+        if (acceptAbsent) {
+            result.set(0, objectCount);
+            clear(result, buffer.getInt(keyEntry + 12), buffer.getInt(keyEntry + 16));
+        }
+
+        Operator type = requirement.getOperatorType();
+        if (type == Operator.EQUALS || type == Operator.DOUBLE_EQUALS || type == Operator.IN) {
+            for (String value : requirement.getStrValues()) {
+                int entry = value(firstValue, valueCount, value);
+                if (entry >= 0) {
+                    set(result, valuesPos + entry * VALUE_INTS * 4);
+                }
+            }
+            return result;
+        }
+        for (int entry = firstValue; entry < firstValue + valueCount; entry++) {
+            int valueEntry = valuesPos + entry * VALUE_INTS * 4;
+            String value = string(buffer.getInt(valueEntry));
+            if (requirement.matches(Collections.singletonMap(requirement.getKey(), value))) {
+                set(result, valueEntry);
+            }
+        }
+        return result;
+    }
+
+    private void set(BitSet result, int valueEntry) {
+        int start = buffer.getInt(valueEntry + 4);
+        int length = buffer.getInt(valueEntry + 8);
+        for (int i = 0; i < length; i++) {
+            result.set(buffer.getInt(postingsPos + (start + i) * 4));
+        }
+    }
+
+    private void clear(BitSet result, int start, int length) {
+        for (int i = 0; i < length; i++) {
+            result.clear(buffer.getInt(postingsPos + (start + i) * 4));
+        }
+    }
+
+    // key returns the index of the key entry for a key, or -1
+    private int key(String key) {
+        int id = stringId(key);
+        if (id < 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = keyCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = buffer.getInt(keysPos + mid * KEY_INTS * 4);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // value returns the index of the value entry for a value among a key's entries, or -1
+    private int value(int firstValue, int valueCount, String value) {
+        int id = stringId(value);
+        if (id < 0) {
+            return -1;
+        }
+        int low = firstValue;
+        int high = firstValue + valueCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = buffer.getInt(valuesPos + mid * VALUE_INTS * 4);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // stringId returns the id of a string in the sorted string pool, or -1
+    private int stringId(String string) {
+        int low = 0;
+        int high = stringCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = string(mid).compareTo(string);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private String string(int id) {
+        int start = buffer.getInt(offsetsPos + id * 4);
+        int end = buffer.getInt(offsetsPos + (id + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringsPos + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,25 @@
+package com.horizonzy;
+
+import java.util.List;
+import java.util.Map;
+
+// NotEqualsRequirement represents 'key!=value', which a missing key also satisfies
+final class NotEqualsRequirement extends Requirement {
+
+    private final String value;
+
+    NotEqualsRequirement(String key, List<String> strValues) {
+        super(key, Operator.NOT_EQUALS, strValues);
+        this.value = strValues.get(0);
+    }
+
+    @Override
+    public boolean matches(Map<String, String> labels) {
+        return !value.equals(labels.get(key));
+    }
+
+    @Override
+    public boolean matches(LabelAccessor labels) {
+        return !value.equals(labels.get(key));
+    }
+}
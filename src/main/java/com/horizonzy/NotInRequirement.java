@@ -0,0 +1,25 @@
+package com.horizonzy;
+
+import java.util.List;
+import java.util.Map;
+
+// NotInRequirement represents 'key notin (v1,v2,...)', which a missing key also satisfies
+final class NotInRequirement extends Requirement {
+
+    private final ValueSet values;
+
+    NotInRequirement(String key, List<String> strValues) {
+        super(key, Operator.NOT_IN, strValues);
+        this.values = valueSet();
+    }
+
+    @Override
+    public boolean matches(Map<String, String> labels) {
+        return !values.contains(labels.get(key));
+    }
+
+    @Override
+    public boolean matches(LabelAccessor labels) {
+        return !values.contains(labels.get(key));
+    }
+}
@@ -0,0 +1,50 @@
+package com.horizonzy;
+
+import java.util.List;
+import java.util.Map;
+
+// NumericCompareRequirement represents 'key>n' and 'key<n'. A missing or non-integer label
+// satisfies neither.
+final class NumericCompareRequirement extends Requirement {
+
+    private final boolean greaterThan;
+
+    private final long operand;
+
+    NumericCompareRequirement(String key, Operator type, List<String> strValues) {
+        super(key, type, strValues);
+        this.greaterThan = type == Operator.GREATER_THAN;
+        this.operand = Long.parseLong(strValues.get(0));
+    }
+
+    long operand() {
+        return operand;
+    }
+
+    // Labels wrapped in NumericLabels are parsed once per map instead of once per requirement.
+    @Override
+    public boolean matches(Map<String, String> labels) {
+        if (labels instanceof NumericLabels) {
+            NumericLabels numericLabels = (NumericLabels) labels;
+            return numericLabels.isNumeric(key) && compare(numericLabels.numericValue(key));
+        }
+        return matchesValue(labels.get(key));
+    }
+
+    @Override
+    public boolean matches(LabelAccessor labels) {
+        return matchesValue(labels.get(key));
+    }
+
+    private boolean matchesValue(String label) {
+        long value = NumericLabels.parseLong(label);
+        if (value == NumericLabels.NOT_LONG && !NumericLabels.isLong(label)) {
+            return false;
+        }
+        return compare(value);
+    }
+
+    private boolean compare(long value) {
+        return greaterThan ? value > operand : value < operand;
+    }
+}
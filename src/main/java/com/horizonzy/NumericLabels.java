@@ -0,0 +1,124 @@
+package com.horizonzy;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only view of a label map that remembers the integer value of every label looked at by
+ * a 'gt' or 'lt' requirement. Wrap an object's labels once and pass the view to
+ * {@link InternalSelector#matches(Map)} to have each numeric label parsed a single time however
+ * many selectors are evaluated against it. Not safe for concurrent use.
+ */
+public final class NumericLabels extends AbstractMap<String, String> {
+
+    private static final Object NOT_NUMERIC = new Object();
+
+    private final Map<String, String> labels;
+
+    private final Map<String, Object> parsed = new HashMap<>();
+
+    public NumericLabels(Map<String, String> labels) {
+        this.labels = labels;
+    }
+
+    public static NumericLabels of(Map<String, String> labels) {
+        if (labels instanceof NumericLabels) {
+            return (NumericLabels) labels;
+        }
+        return new NumericLabels(labels);
+    }
+
+    @Override
+    public String get(Object key) {
+        return labels.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return labels.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return labels.size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return labels.entrySet();
+    }
+
+    boolean isNumeric(String key) {
+        return parsed(key) != NOT_NUMERIC;
+    }
+
+    long numericValue(String key) {
+        return (Long) parsed(key);
+    }
+
+    private Object parsed(String key) {
+        Object value = parsed.get(key);
+        if (value == null) {
+            String label = labels.get(key);
+            long number = parseLong(label);
+            value = number != NOT_LONG || isLong(label) ? (Object) number : NOT_NUMERIC;
+            parsed.put(key, value);
+        }
+        return value;
+    }
+
+    // NOT_LONG is what parseLong returns for a string that is not an integer. It is also the
+    // valid value Long.MIN_VALUE, so callers confirm it with isLong.
+    static final long NOT_LONG = Long.MIN_VALUE;
+
+    // isLong reports whether Long.parseLong would accept the ASCII string, without throwing.
+    static boolean isLong(String s) {
+        return accumulate(s) <= 0;
+    }
+
+    // parseLong returns what Long.parseLong would, parsing the string only once, or NOT_LONG
+    // where Long.parseLong would throw.
+    static long parseLong(String s) {
+        long result = accumulate(s);
+        if (result > 0) {
+            return NOT_LONG;
+        }
+        return s.charAt(0) == '-' ? result : -result;
+    }
+
+    // accumulate returns the negated magnitude of the integer, the way Long.parseLong
+    // accumulates it to reach Long.MIN_VALUE, or 1 if the string is not an integer.
+    private static long accumulate(String s) {
+        if (s == null || s.length() == 0) {
+            return 1;
+        }
+        int i = 0;
+        long limit = -Long.MAX_VALUE;
+        char first = s.charAt(0);
+        if (first == '-' || first == '+') {
+            if (s.length() == 1) {
+                return 1;
+            }
+            if (first == '-') {
+                limit = Long.MIN_VALUE;
+            }
+            i++;
+        }
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < s.length(); i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multmin) {
+                return 1;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return 1;
+            }
+            result -= digit;
+        }
+        return result;
+    }
+}
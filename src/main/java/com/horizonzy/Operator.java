@@ -3,7 +3,28 @@ package com.horizonzy;
 import java.util.Arrays;
 import java.util.List;
 
-public class Operator {
+public enum Operator {
+
+    DOES_NOT_EXIST("!"),
+
+    EQUALS("="),
+
+    DOUBLE_EQUALS("=="),
+
+    IN("in"),
+
+    NOT_EQUALS("!="),
+
+    NOT_IN("notin"),
+
+    EXISTS("exists"),
+
+    GREATER_THAN("gt"),
+
+    LESS_THAN("lt");
+
+    // The string forms below are what Requirement.getOperator() returns and what
+    // Requirement.newRequirement() accepts.
 
     public static final String DoesNotExist = "!";
 
@@ -28,4 +49,43 @@ public class Operator {
     public static List<String> binaryOperators = Arrays
             .asList(In, NotIn, Equals, DoubleEquals, NotEquals, GreaterThan, LessThan);
 
+    private final String symbol;
+
+    Operator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    // of returns the operator for its string form, or null if there is none
+    public static Operator of(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+        switch (symbol) {
+            case DoesNotExist:
+                return DOES_NOT_EXIST;
+            case Equals:
+                return EQUALS;
+            case DoubleEquals:
+                return DOUBLE_EQUALS;
+            case In:
+                return IN;
+            case NotEquals:
+                return NOT_EQUALS;
+            case NotIn:
+                return NOT_IN;
+            case Exists:
+                return EXISTS;
+            case GreaterThan:
+                return GREATER_THAN;
+            case LessThan:
+                return LESS_THAN;
+            default:
+                return null;
+        }
+    }
+
 }
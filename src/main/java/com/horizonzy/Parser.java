@@ -2,10 +2,13 @@ package com.horizonzy;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
+/**
+ * Recursive descent parser for label selectors. Tokens are pulled from the {@link Lexer} on
+ * demand with a single token of lookahead; {@link #scan()} can still be used to tokenize the
+ * whole input up front, in which case the parser walks the scanned items instead.
+ */
 public class Parser {
 
     private Lexer lexer;
@@ -14,6 +17,28 @@ public class Parser {
 
     private List<ScannedItem> scannedItems = new ArrayList<>();
 
+    private boolean scanned;
+
+    // the lookahead token, valid while buffered is true
+    private boolean buffered;
+
+    private int aheadToken;
+
+    private int aheadStart;
+
+    private int aheadEnd;
+
+    private String aheadLiteral;
+
+    // the last consumed token
+    private int lastToken;
+
+    private int lastStart;
+
+    private int lastEnd;
+
+    private String lastLiteral;
+
     public Parser() {
     }
 
@@ -33,6 +58,7 @@ public class Parser {
 
     public void setLexer(Lexer lexer) {
         this.lexer = lexer;
+        this.buffered = false;
     }
 
     public int getPosition() {
@@ -41,6 +67,7 @@ public class Parser {
 
     public void setPosition(int position) {
         this.position = position;
+        this.buffered = false;
     }
 
     public List<ScannedItem> getScannedItems() {
@@ -49,79 +76,122 @@ public class Parser {
 
     public void setScannedItems(List<ScannedItem> scannedItems) {
         this.scannedItems = scannedItems;
+        this.scanned = true;
+        this.buffered = false;
     }
 
-    public Tuple<Integer, String> lookAhead(Integer context) {
-        Integer token = scannedItems.get(position).getToken();
-        String lit = scannedItems.get(position).getLiteral();
+    public Tuple<Integer, String> lookAhead(int context) {
+        int token = peek(context);
+        return new Tuple<>(token, peekLiteral());
+    }
 
-        if (ParseContext.Values == context) {
-            if (Token.InToken == token || Token.NotInToken == token) {
-                token = Token.IdentifierToken;
+    public void incPosition() {
+        next(ParseContext.Values);
+    }
+
+    public Tuple<Integer, String> consume(int context) {
+        int token = next(context);
+        return new Tuple<>(token, literal());
+    }
+
+    public void scan() {
+        for (; ; ) {
+            int token = lexer.next();
+            scannedItems.add(new ScannedItem(token, lexer.tokenText()));
+            if (Token.EndOfStringToken == token) {
+                break;
             }
         }
-        return new Tuple<>(token, lit);
+        scanned = true;
+        buffered = false;
     }
 
-    public void incPosition() {
-        position++;
+    private void fill() {
+        if (buffered) {
+            return;
+        }
+        if (scanned) {
+            ScannedItem item = scannedItems.get(position);
+            aheadToken = item.getToken();
+            aheadLiteral = item.getLiteral();
+        } else {
+            aheadToken = lexer.next();
+            aheadStart = lexer.tokenStart();
+            aheadEnd = lexer.tokenEnd();
+            aheadLiteral = null;
+        }
+        buffered = true;
+    }
+
+    private int peek(int context) {
+        fill();
+        return inContext(aheadToken, context);
     }
 
-    public Tuple<Integer, String> consume(Integer context) {
+    private String peekLiteral() {
+        fill();
+        return aheadLiteral != null ? aheadLiteral : text(aheadToken, aheadStart, aheadEnd);
+    }
+
+    private int next(int context) {
+        fill();
+        lastToken = aheadToken;
+        lastStart = aheadStart;
+        lastEnd = aheadEnd;
+        lastLiteral = aheadLiteral;
+        buffered = false;
         position++;
-        Integer token = scannedItems.get(position - 1).getToken();
-        String lit = scannedItems.get(position - 1).getLiteral();
-        if (ParseContext.Values == context) {
-            if (Token.InToken == token || Token.NotInToken == token) {
-                token = Token.IdentifierToken;
-            }
+        return inContext(lastToken, context);
+    }
+
+    private String literal() {
+        return lastLiteral != null ? lastLiteral : text(lastToken, lastStart, lastEnd);
+    }
+
+    private String text(int token, int start, int end) {
+        if (Token.IdentifierToken == token) {
+            return lexer.getInput().subSequence(start, end).toString();
         }
-        return new Tuple<>(token, lit);
+        return Token.literal(token);
     }
 
-    public void scan() {
-        for (; ; ) {
-            Tuple<Integer, String> tuple = lexer.lex();
-            scannedItems.add(new ScannedItem(tuple.getKey(), tuple.getValue()));
-            if (Token.EndOfStringToken == tuple.getKey()) {
-                break;
+    private static int inContext(int token, int context) {
+        if (ParseContext.Values == context) {
+            if (Token.InToken == token || Token.NotInToken == token) {
+                return Token.IdentifierToken;
             }
         }
+        return token;
     }
 
     public InternalSelector parse() {
-        scan();
         InternalSelector requirements = new InternalSelector();
         for (; ; ) {
-            Tuple<Integer, String> tuple = lookAhead(ParseContext.Values);
-            Integer token = tuple.getKey();
-            String lit = tuple.getValue();
+            int token = peek(ParseContext.Values);
             if (Token.IdentifierToken == token || Token.DoesNotExistToken == token) {
                 Requirement requirement = parseRequirement();
                 requirements.addRequire(requirement);
-                Tuple<Integer, String> tuple2 = consume(ParseContext.Values);
-                Integer t2 = tuple2.getKey();
-                String l2 = tuple2.getValue();
+                int t2 = next(ParseContext.Values);
                 if (Token.EndOfStringToken == t2) {
                     return requirements;
                 } else if (Token.CommaToken == t2) {
-                    Tuple<Integer, String> tuple3 = lookAhead(ParseContext.Values);
-                    Integer t3 = tuple3.getKey();
-                    String l3 = tuple3.getValue();
+                    int t3 = peek(ParseContext.Values);
                     if (Token.IdentifierToken != t3 && Token.DoesNotExistToken != t3) {
                         throw new IllegalArgumentException(
-                                String.format("found '%s', expected: identifier after ','", l3));
+                                String.format("found '%s', expected: identifier after ','",
+                                        peekLiteral()));
                     }
                 } else {
                     throw new IllegalArgumentException(
-                            String.format("found '%s', expected: ',' or 'end of string'", l2));
+                            String.format("found '%s', expected: ',' or 'end of string'",
+                                    literal()));
                 }
             } else if (Token.EndOfStringToken == token) {
                 return requirements;
             } else {
                 throw new IllegalArgumentException(
                         String.format("found '%s', expected : !, identifier, or 'end of string'",
-                                lit));
+                                peekLiteral()));
             }
         }
     }
@@ -138,7 +208,7 @@ public class Parser {
 
         operator = parseOperator();
 
-        Set<String> values = null;
+        List<String> values = null;
         if (Operator.In.equals(operator) || Operator.NotIn.equals(operator)) {
             values = parseValues();
         } else if (Operator.Equals.equals(operator) || Operator.DoubleEquals.equals(operator)
@@ -146,32 +216,24 @@ public class Parser {
                 || Operator.LessThan.equals(operator)) {
             values = parseExactValue();
         }
-        return Requirement.newRequirement(key, operator,
-                values == null ? new ArrayList<>() : new ArrayList<>(values));
+        return Requirement.newRequirement(key, operator, values);
 
     }
 
     public Tuple<String, String> parseKeyAndInferOperator() {
         String operator = null;
-        Integer token;
-        String lit;
-        Tuple<Integer, String> tuple1 = consume(ParseContext.Values);
-        token = tuple1.getKey();
-        lit = tuple1.getValue();
+        int token = next(ParseContext.Values);
         if (Token.DoesNotExistToken == token) {
             operator = Operator.DoesNotExist;
-            Tuple<Integer, String> tuple2 = consume(ParseContext.Values);
-            token = tuple2.getKey();
-            lit = tuple2.getValue();
+            token = next(ParseContext.Values);
         }
         if (Token.IdentifierToken != token) {
             throw new IllegalArgumentException(
-                    String.format("found '%s', expected: identifier", lit));
+                    String.format("found '%s', expected: identifier", literal()));
         }
+        String lit = LabelSymbols.shared().canonicalKey(literal());
 
-        Selector.validateLabelKey(lit);
-
-        Integer t = lookAhead(ParseContext.Values).getKey();
+        int t = peek(ParseContext.Values);
         if (Token.EndOfStringToken == t || Token.CommaToken == t) {
             if (!Operator.DoesNotExist.equals(operator)) {
                 operator = Operator.Exists;
@@ -182,9 +244,7 @@ public class Parser {
 
 
     public String parseOperator() {
-        Tuple<Integer, String> tuple = consume(ParseContext.KeyAndOperator);
-        Integer token = tuple.getKey();
-        String lit = tuple.getValue();
+        int token = next(ParseContext.KeyAndOperator);
 
         switch (token) {
             case Token.InToken:
@@ -202,34 +262,30 @@ public class Parser {
             case Token.NotEqualsToken:
                 return Operator.NotEquals;
             default:
-                throw new IllegalArgumentException(String.format("found '%s', expected: %s", lit,
-                        String.join(", ", Operator.unaryOperators)));
+                throw new IllegalArgumentException(String.format("found '%s', expected: %s",
+                        literal(), String.join(", ", Operator.unaryOperators)));
         }
     }
 
-    public Set<String> parseValues() {
-        Tuple<Integer, String> tuple = consume(ParseContext.Values);
-        Integer token = tuple.getKey();
-        String lit = tuple.getValue();
-
+    // parseValues returns the sorted, de-duplicated values of an 'in' or 'notin' list
+    public List<String> parseValues() {
+        int token = next(ParseContext.Values);
         if (Token.OpenParToken != token) {
-            throw new IllegalArgumentException(String.format("found '%s' expected: '('", lit));
+            throw new IllegalArgumentException(
+                    String.format("found '%s' expected: '('", literal()));
         }
-        Tuple<Integer, String> tuple1 = lookAhead(ParseContext.Values);
-        token = tuple1.getKey();
-        lit = tuple1.getValue();
+        token = peek(ParseContext.Values);
+        String lit = peekLiteral();
 
         if (Token.IdentifierToken == token || Token.CommaToken == token) {
-            Set<String> s = parseIdentifiersList();
-            Tuple<Integer, String> tuple2 = consume(ParseContext.Values);
-            Integer token2 = tuple2.getKey();
-            if (Token.ClosedParToken != token2) {
+            List<String> s = parseIdentifiersList();
+            if (Token.ClosedParToken != next(ParseContext.Values)) {
                 throw new IllegalArgumentException(String.format("found '%s', expected: ')'", lit));
             }
-            return s;
+            return sortedUnique(s);
         } else if (Token.ClosedParToken == token) {
             incPosition();
-            return new HashSet<>(Collections.singletonList(""));
+            return Collections.singletonList("");
         } else {
             throw new IllegalArgumentException(
                     String.format("found '%s', expected: ',', ')' or identifier", lit));
@@ -237,33 +293,28 @@ public class Parser {
 
     }
 
-    public Set<String> parseIdentifiersList() {
-        Set<String> result = new HashSet<>();
+    public List<String> parseIdentifiersList() {
+        List<String> result = new ArrayList<>();
 
         for (; ; ) {
-            Tuple<Integer, String> tuple = consume(ParseContext.Values);
-            Integer token = tuple.getKey();
-            String lit = tuple.getValue();
+            int token = next(ParseContext.Values);
 
             if (Token.IdentifierToken == token) {
-                result.add(lit);
-                Tuple<Integer, String> tuple2 = lookAhead(ParseContext.Values);
-                Integer token2 = tuple2.getKey();
-                String lit2 = tuple2.getValue();
+                result.add(literal());
+                int token2 = peek(ParseContext.Values);
                 if (Token.CommaToken == token2) {
                     continue;
                 } else if (Token.ClosedParToken == token2) {
                     return result;
                 } else {
                     throw new IllegalArgumentException(
-                            String.format("found '%s', expected: ',' or ')'", lit2));
+                            String.format("found '%s', expected: ',' or ')'", peekLiteral()));
                 }
             } else if (Token.CommaToken == token) {
                 if (result.size() == 0) {
                     result.add("");
                 }
-                Tuple<Integer, String> tuple2 = lookAhead(ParseContext.Values);
-                Integer token2 = tuple2.getKey();
+                int token2 = peek(ParseContext.Values);
                 if (Token.ClosedParToken == token2) {
                     result.add("");
                     return result;
@@ -274,30 +325,36 @@ public class Parser {
                 }
             } else {
                 throw new IllegalArgumentException(
-                        String.format("found '%s', expected: ',' or identifier", lit));
+                        String.format("found '%s', expected: ',' or identifier", literal()));
             }
         }
     }
 
-    public Set<String> parseExactValue() {
-        Set<String> result = new HashSet<>();
-
-        Tuple<Integer, String> tuple = lookAhead(ParseContext.Values);
-        Integer token = tuple.getKey();
-        String lit = tuple.getValue();
+    public List<String> parseExactValue() {
+        int token = peek(ParseContext.Values);
         if (Token.EndOfStringToken == token || Token.CommaToken == token) {
-            result.add("");
-            return result;
+            return Collections.singletonList("");
         }
         incPosition();
         if (Token.IdentifierToken == token) {
-            result.add(lit);
-            return result;
+            return Collections.singletonList(literal());
         }
-        throw new IllegalArgumentException(String.format("found '%s', expected: identifier", lit));
+        throw new IllegalArgumentException(
+                String.format("found '%s', expected: identifier", literal()));
     }
-}
-
-
-
 
+    private static List<String> sortedUnique(List<String> values) {
+        if (values.size() < 2) {
+            return values;
+        }
+        Collections.sort(values);
+        int size = 1;
+        for (int i = 1; i < values.size(); i++) {
+            String value = values.get(i);
+            if (!value.equals(values.get(size - 1))) {
+                values.set(size++, value);
+            }
+        }
+        return values.subList(0, size);
+    }
+}
@@ -1,25 +1,58 @@
 package com.horizonzy;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * A single key/operator/values constraint. {@link #newRequirement} returns one final subclass
+ * per operator so that {@link #matches(Map)} dispatches without switching on the operator; the
+ * base class itself matches nothing.
+ *
+ * <p>Requirements are immutable and kept in canonical form: values are sorted and de-duplicated.
+ * Equality is structural and treats '=' and '==' as the same operator.
+ */
 public class Requirement {
 
-    private String key;
+    // key is read directly by the operator subclasses on the matching path
+    final String key;
 
-    private String operator;
+    private final String operator;
 
-    private List<String> strValues;
+    private final Operator type;
+
+    private final List<String> strValues;
+
+    private final ValueSet valueSet;
+
+    private final int hash;
 
     private Requirement() {
-        this("", "", new ArrayList<>());
+        this("", "", null, new ArrayList<>());
     }
 
-    private Requirement(String key, String operator, List<String> strValues) {
+    Requirement(String key, Operator type, List<String> strValues) {
+        this(key, type.getSymbol(), type, strValues);
+    }
+
+    private Requirement(String key, String operator, Operator type, List<String> strValues) {
         this.key = key;
         this.operator = operator;
+        this.type = type;
         this.strValues = strValues;
+        this.valueSet = ValueSet.of(strValues);
+        this.hash = (31 * key.hashCode() + ordinal(canonical(type))) * 31 + strValues.hashCode();
+    }
+
+    // canonical returns the operator type equality compares by
+    static Operator canonical(Operator type) {
+        return type == Operator.DOUBLE_EQUALS ? Operator.EQUALS : type;
+    }
+
+    private static int ordinal(Operator type) {
+        return type == null ? -1 : type.ordinal();
     }
 
     public String getKey() {
@@ -30,173 +63,188 @@ public class Requirement {
         return operator;
     }
 
+    // getOperatorType is null only for the empty requirement
+    public Operator getOperatorType() {
+        return type;
+    }
+
     public List<String> getStrValues() {
         return strValues;
     }
 
     public boolean matches(Map<String, String> labels) {
-        switch (operator) {
-            case Operator.In:
-            case Operator.Equals:
-            case Operator.DoubleEquals:
-                String val = labels.get(key);
-                if (val == null) {
-                    return false;
-                }
-                return hasValue(val);
-            case Operator.NotIn:
-            case Operator.NotEquals:
-                String val2 = labels.get(key);
-                if (val2 == null) {
-                    return true;
-                }
-                return !hasValue(val2);
-            case Operator.Exists:
-                return labels.containsKey(key);
-            case Operator.DoesNotExist:
-                return !labels.containsKey(key);
-            case Operator.GreaterThan:
-            case Operator.LessThan:
-                String val3 = labels.get(key);
-                if (val3 == null) {
-                    return false;
-                }
-                Integer lsValue;
-                try {
-                    lsValue = Integer.parseInt(val3);
-                } catch (NumberFormatException e) {
-
-                    //log warn
-//                    throw new IllegalArgumentException(
-//                            String.format("ParseInt failed for value %s in label %s", val3, labels),
-//                            e);
-                    return false;
-                }
-                if (strValues.size() != 1) {
-                    throw new IllegalArgumentException(String.format(
-                            "Invalid values count %d of requirement %s, for 'Gt', 'Lt' operators, exactly one value is required",
-                            strValues.size(), this));
-                }
-                Integer rValue = null;
-                for (String strValue : strValues) {
-                    try {
-                        rValue = Integer.parseInt(strValue);
-                    } catch (NumberFormatException e) {
-                        //log warn
-//                        throw new IllegalArgumentException(String.format(
-//                                "ParseInt failed for value %s in requirement %s, for 'Gt', 'Lt' operators, the value must be an integer",
-//                                strValue, this));
-                        return false;
-                    }
-                }
-                return (Operator.GreaterThan.equals(operator) && lsValue > rValue) || (
-                        Operator.LessThan.equals(operator) && lsValue < rValue);
-            default:
-                return false;
-        }
+        return false;
+    }
+
+    public boolean matches(LabelAccessor labels) {
+        return false;
     }
 
     public boolean hasValue(String value) {
-        return strValues.contains(value);
+        return valueSet.contains(value);
+    }
+
+    ValueSet valueSet() {
+        return valueSet;
     }
 
     public static Requirement newRequirement(String key, String operator, List<String> vals) {
         if (vals == null) {
             vals = new ArrayList<>();
         }
-        Selector.validateLabelKey(key);
-        switch (operator) {
-            case Operator.In:
-            case Operator.NotIn:
+        LabelSymbols symbols = LabelSymbols.shared();
+        key = symbols.canonicalKey(key);
+        Operator type = Operator.of(operator);
+        if (type == null) {
+            throw invalidRequirement("not supported current operator:" + operator);
+        }
+        switch (type) {
+            case IN:
+            case NOT_IN:
                 if (vals.size() == 0) {
-                    throw new IllegalArgumentException(
+                    throw invalidRequirement(
                             "for 'in', 'notin' operators, values set can't be empty");
                 }
                 break;
-            case Operator.Equals:
-            case Operator.DoubleEquals:
-            case Operator.NotEquals:
+            case EQUALS:
+            case DOUBLE_EQUALS:
+            case NOT_EQUALS:
                 if (vals.size() != 1) {
-                    throw new IllegalArgumentException(
+                    throw invalidRequirement(
                             "exact-match compatibility requires one single value");
                 }
                 break;
-            case Operator.Exists:
-            case Operator.DoesNotExist:
+            case EXISTS:
+            case DOES_NOT_EXIST:
                 if (vals.size() != 0) {
-                    throw new IllegalArgumentException(
+                    throw invalidRequirement(
                             "values set must be empty for exists and does not exist");
                 }
                 break;
-            case Operator.GreaterThan:
-            case Operator.LessThan:
+            case GREATER_THAN:
+            case LESS_THAN:
                 if (vals.size() != 1) {
-                    throw new IllegalArgumentException(
+                    throw invalidRequirement(
                             "for 'Gt', 'Lt' operators, exactly one value is required");
                 }
                 for (String val : vals) {
-                    try {
-                        Integer.parseInt(val);
-                    } catch (NumberFormatException e) {
-                        throw new IllegalArgumentException(
+                    if (!NumericLabels.isLong(val)) {
+                        throw invalidRequirement(
                                 "for 'Gt', 'Lt' operators, the value must be an integer");
                     }
                 }
                 break;
+        }
+        String[] values = new String[vals.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = symbols.canonicalValue(vals.get(i));
+        }
+        return create(key, type, sortedUnique(values));
+    }
+
+    private static SelectorException invalidRequirement(String message) {
+        return new SelectorException(SelectorException.Kind.INVALID_REQUIREMENT, message);
+    }
+
+    // sortedUnique returns the values sorted, without duplicates, as an unmodifiable list
+    static List<String> sortedUnique(String[] values) {
+        Arrays.sort(values);
+        int size = Math.min(values.length, 1);
+        for (int i = 1; i < values.length; i++) {
+            if (!values[i].equals(values[size - 1])) {
+                values[size++] = values[i];
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(values, size)));
+    }
+
+    // create builds the requirement for an operator without validating the key or values,
+    // which must already be sorted and unique
+    static Requirement create(String key, Operator type, List<String> vals) {
+        switch (type) {
+            case EQUALS:
+            case DOUBLE_EQUALS:
+                return new EqualsRequirement(key, type, vals);
+            case NOT_EQUALS:
+                return new NotEqualsRequirement(key, vals);
+            case IN:
+                return new InRequirement(key, vals);
+            case NOT_IN:
+                return new NotInRequirement(key, vals);
+            case EXISTS:
+                return new ExistsRequirement(key);
+            case DOES_NOT_EXIST:
+                return new DoesNotExistRequirement(key);
             default:
-                throw new IllegalArgumentException("not supported current operator:" + operator);
+                return new NumericCompareRequirement(key, type, vals);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
         }
-        for (String val : vals) {
-            Selector.validateLabelValue(val);
+        if (!(o instanceof Requirement)) {
+            return false;
         }
-        return new Requirement(key, operator, vals);
+        Requirement other = (Requirement) o;
+        return hash == other.hash && canonical(type) == canonical(other.type)
+                && key.equals(other.key) && strValues.equals(other.strValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
     }
 
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
-        if (Operator.DoesNotExist.equals(operator)) {
+        if (type == Operator.DOES_NOT_EXIST) {
             builder.append("!");
         }
         builder.append(key);
 
-        switch (operator) {
-            case Operator.Equals:
-                builder.append("=");
-                break;
-            case Operator.DoubleEquals:
-                builder.append("==");
-                break;
-            case Operator.NotEquals:
-                builder.append("!=");
-                break;
-            case Operator.In:
-                builder.append(" in ");
-                break;
-            case Operator.NotIn:
-                builder.append(" notin ");
-                break;
-            case Operator.GreaterThan:
-                builder.append(">");
-                break;
-            case Operator.LessThan:
-                builder.append("<");
-                break;
-            case Operator.Exists:
-            case Operator.DoesNotExist:
-                return builder.toString();
+        if (type != null) {
+            switch (type) {
+                case EQUALS:
+                    builder.append("=");
+                    break;
+                case DOUBLE_EQUALS:
+                    builder.append("==");
+                    break;
+                case NOT_EQUALS:
+                    builder.append("!=");
+                    break;
+                case IN:
+                    builder.append(" in ");
+                    break;
+                case NOT_IN:
+                    builder.append(" notin ");
+                    break;
+                case GREATER_THAN:
+                    builder.append(">");
+                    break;
+                case LESS_THAN:
+                    builder.append("<");
+                    break;
+                case EXISTS:
+                case DOES_NOT_EXIST:
+                    return builder.toString();
+            }
         }
 
-        if (Operator.In.equals(operator) || Operator.NotIn.equals(operator)) {
+        if (type == Operator.IN || type == Operator.NOT_IN) {
             builder.append("(");
         }
         if (strValues.size() == 1) {
             builder.append(strValues.get(0));
         } else {
-            builder.append(String.join(",", Selector.safeSort(strValues)));
+            builder.append(String.join(",", strValues));
         }
 
-        if (Operator.In.equals(operator) || Operator.NotIn.equals(operator)) {
+        if (type == Operator.IN || type == Operator.NOT_IN) {
             builder.append(")");
         }
         return builder.toString();
@@ -2,11 +2,13 @@ package com.horizonzy;
 
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
 
 public class Selector {
 
@@ -27,7 +29,54 @@ public class Selector {
         string2Token.put("(", Token.OpenParToken);
     }
 
+    // metrics is the registered listener, or null when nothing is reported
+    private static volatile SelectorMetrics metrics;
+
+    /**
+     * Registers the listener parse, validation and match events are reported to, replacing any
+     * previous one; null unregisters it. Matches are only reported for selectors parsed while a
+     * listener is registered, so selectors parsed without one match at full speed.
+     */
+    public static void setMetrics(SelectorMetrics listener) {
+        metrics = listener;
+    }
+
+    static SelectorMetrics metrics() {
+        return metrics;
+    }
+
     public static InternalSelector parse(String selector) {
+        SelectorMetrics listener = metrics;
+        if (listener == null) {
+            return doParse(selector);
+        }
+        long start = System.nanoTime();
+        InternalSelector items;
+        try {
+            items = doParse(selector);
+        } catch (IllegalArgumentException e) {
+            listener.parseFailed(selector, SelectorException.kindOf(e), System.nanoTime() - start);
+            throw e;
+        }
+        listener.parsed(selector, System.nanoTime() - start);
+        return new InstrumentedSelector(items.getRequirementList(), true, false);
+    }
+
+    /**
+     * Parses every selector, in parallel on the common fork/join pool for large batches, and
+     * returns one result per input in input order. Identical strings are parsed only once and
+     * share one frozen selector; a selector that fails to parse yields a result holding its
+     * error instead of failing the batch.
+     */
+    public static List<ParseResult> parseAll(Collection<String> selectors) {
+        return parseAll(selectors, ForkJoinPool.commonPool());
+    }
+
+    public static List<ParseResult> parseAll(Collection<String> selectors, ForkJoinPool pool) {
+        return BulkParse.parseAll(selectors, pool);
+    }
+
+    private static InternalSelector doParse(String selector) {
         Lexer lexer = new Lexer(selector);
         Parser parser = new Parser(lexer);
         InternalSelector items = parser.parse();
@@ -55,6 +104,10 @@ public class Selector {
     }
 
     public static boolean isSpecialSymbol(byte ch) {
+        return isSpecialSymbol((char) ch);
+    }
+
+    public static boolean isSpecialSymbol(char ch) {
         if (ch == '=') {
             return true;
         }
@@ -77,6 +130,10 @@ public class Selector {
     }
 
     public static boolean isWhiteSpace(byte ch) {
+        return isWhiteSpace((char) ch);
+    }
+
+    public static boolean isWhiteSpace(char ch) {
         if (ch == ' ') {
             return true;
         }
@@ -106,6 +163,42 @@ public class Selector {
         return target;
     }
 
-}
+    // ParseResult represents the outcome of parsing one selector of a batch
+    public static final class ParseResult {
+
+        private final String input;
+
+        private final InternalSelector selector;
+
+        private final IllegalArgumentException error;
+
+        ParseResult(String input, InternalSelector selector, IllegalArgumentException error) {
+            this.input = input;
+            this.selector = selector;
+            this.error = error;
+        }
+
+        public String getInput() {
+            return input;
+        }
 
+        // getSelector returns the frozen selector, or null if parsing failed
+        public InternalSelector getSelector() {
+            return selector;
+        }
+
+        // getError returns why parsing failed, or null if it succeeded
+        public IllegalArgumentException getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
 
+        @Override
+        public String toString() {
+            return isSuccess() ? input + " -> " + selector : input + " -> " + error.getMessage();
+        }
+    }
+}
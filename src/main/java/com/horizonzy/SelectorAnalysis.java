@@ -0,0 +1,163 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides implication and intersection of selectors over label sets made of valid label keys and
+ * values. Requirements constrain one key each, so a conjunction is satisfiable exactly when the
+ * requirements on every key are. For a single key, every requirement only distinguishes a missing
+ * label, its own literal values, integers by the side of a 'gt' or 'lt' bound they fall on, and
+ * everything else; {@link #candidates} picks one representative of each such region, so testing
+ * the representatives with {@link Requirement#matches(Map)} is exact.
+ */
+final class SelectorAnalysis {
+
+    // ABSENT stands for the label being missing among the candidate values
+    private static final String ABSENT = null;
+
+    private static final int LABEL_VALUE_MAX_LENGTH = 63;
+
+    private SelectorAnalysis() {
+    }
+
+    static boolean intersects(InternalSelector a, InternalSelector b) {
+        Map<String, List<Requirement>> byKey = byKey(a.getRequirementList());
+        for (Requirement requirement : b.getRequirementList()) {
+            group(byKey, requirement.getKey()).add(requirement);
+        }
+        return satisfiable(byKey);
+    }
+
+    static boolean implies(InternalSelector a, InternalSelector b) {
+        Map<String, List<Requirement>> byKey = byKey(a.getRequirementList());
+        if (!satisfiable(byKey)) {
+            return true;
+        }
+        for (Requirement requirement : b.getRequirementList()) {
+            List<Requirement> constraints = byKey.get(requirement.getKey());
+            if (constraints == null) {
+                constraints = Collections.emptyList();
+            }
+            // a implies the requirement unless some value a allows for its key violates it
+            for (String candidate : candidates(constraints, requirement)) {
+                Map<String, String> labels = labels(requirement.getKey(), candidate);
+                if (matchesAll(constraints, labels) && !requirement.matches(labels)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    static InternalSelector intersection(InternalSelector a, InternalSelector b) {
+        InternalSelector result = new InternalSelector();
+        Set<Requirement> distinct = new LinkedHashSet<>(a.getRequirementList());
+        distinct.addAll(b.getRequirementList());
+        for (Requirement requirement : distinct) {
+            result.addRequire(requirement);
+        }
+        result.sort();
+        return result;
+    }
+
+    private static boolean satisfiable(Map<String, List<Requirement>> byKey) {
+        for (Map.Entry<String, List<Requirement>> entry : byKey.entrySet()) {
+            boolean satisfied = false;
+            for (String candidate : candidates(entry.getValue(), null)) {
+                if (matchesAll(entry.getValue(), labels(entry.getKey(), candidate))) {
+                    satisfied = true;
+                    break;
+                }
+            }
+            if (!satisfied) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // candidates returns one value from every region the requirements on a key tell apart
+    private static Set<String> candidates(List<Requirement> requirements, Requirement extra) {
+        List<Requirement> all = new ArrayList<>(requirements);
+        if (extra != null) {
+            all.add(extra);
+        }
+        Set<String> literals = new LinkedHashSet<>();
+        Set<Long> integers = new LinkedHashSet<>();
+        integers.add(0L);
+        integers.add(Long.MAX_VALUE);
+        for (Requirement requirement : all) {
+            literals.addAll(requirement.getStrValues());
+            Operator type = requirement.getOperatorType();
+            if (type == Operator.GREATER_THAN || type == Operator.LESS_THAN) {
+                long bound = Long.parseLong(requirement.getStrValues().get(0));
+                for (long delta = -1; delta <= 1; delta++) {
+                    long value = bound + delta;
+                    // skip overflows and negative numbers, which are not valid label values
+                    if (value >= 0) {
+                        integers.add(value);
+                    }
+                }
+            }
+        }
+
+        Set<String> candidates = new LinkedHashSet<>();
+        candidates.add(ABSENT);
+        candidates.addAll(literals);
+        for (int i = 0; ; i++) {
+            String fresh = "x" + i;
+            if (!literals.contains(fresh)) {
+                candidates.add(fresh);
+                break;
+            }
+        }
+        // leading zeros give an integer more spellings than there are literals to exclude them
+        for (long value : integers) {
+            String digits = Long.toString(value);
+            StringBuilder spelling = new StringBuilder(digits);
+            for (int zeros = 0; zeros <= literals.size() + 1
+                    && spelling.length() <= LABEL_VALUE_MAX_LENGTH; zeros++) {
+                candidates.add(spelling.toString());
+                spelling.insert(0, '0');
+            }
+        }
+        return candidates;
+    }
+
+    private static boolean matchesAll(List<Requirement> requirements, Map<String, String> labels) {
+        for (Requirement requirement : requirements) {
+            if (!requirement.matches(labels)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, String> labels(String key, String value) {
+        return value == ABSENT ? Collections.<String, String>emptyMap()
+                : Collections.singletonMap(key, value);
+    }
+
+    private static Map<String, List<Requirement>> byKey(List<Requirement> requirements) {
+        Map<String, List<Requirement>> byKey = new LinkedHashMap<>();
+        for (Requirement requirement : requirements) {
+            group(byKey, requirement.getKey()).add(requirement);
+        }
+        return byKey;
+    }
+
+    private static List<Requirement> group(Map<String, List<Requirement>> byKey, String key) {
+        List<Requirement> group = byKey.get(key);
+        if (group == null) {
+            group = new ArrayList<>();
+            byKey.put(key, group);
+        }
+        return group;
+    }
+}
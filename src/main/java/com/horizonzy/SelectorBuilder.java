@@ -0,0 +1,141 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Builds an {@link InternalSelector} from structured input, such as the matchLabels and
+ * matchExpressions of an API object, without rendering and re-parsing a selector string.
+ *
+ * <p>A builder from {@link #SelectorBuilder()} validates keys and values the same way
+ * {@link Selector#parse(String)} does. One from {@link #trusted()} skips that validation for
+ * input that was validated already, such as objects read back from the API server; values are
+ * still sorted and de-duplicated so the result is in canonical form either way. Null keys and
+ * values are rejected by both.
+ */
+public final class SelectorBuilder {
+
+    private final boolean trusted;
+
+    private final List<Requirement> requirements = new ArrayList<>();
+
+    public SelectorBuilder() {
+        this(false);
+    }
+
+    private SelectorBuilder(boolean trusted) {
+        this.trusted = trusted;
+    }
+
+    // trusted returns a builder that does not validate keys and values
+    public static SelectorBuilder trusted() {
+        return new SelectorBuilder(true);
+    }
+
+    public boolean isTrusted() {
+        return trusted;
+    }
+
+    public SelectorBuilder eq(String key, String value) {
+        return add(key, Operator.EQUALS, value);
+    }
+
+    public SelectorBuilder notEq(String key, String value) {
+        return add(key, Operator.NOT_EQUALS, value);
+    }
+
+    public SelectorBuilder in(String key, String... values) {
+        return add(key, Operator.IN, values);
+    }
+
+    public SelectorBuilder in(String key, Collection<String> values) {
+        return add(key, Operator.IN, toArray(values));
+    }
+
+    public SelectorBuilder notIn(String key, String... values) {
+        return add(key, Operator.NOT_IN, values);
+    }
+
+    public SelectorBuilder notIn(String key, Collection<String> values) {
+        return add(key, Operator.NOT_IN, toArray(values));
+    }
+
+    public SelectorBuilder exists(String key) {
+        return add(key, Operator.EXISTS);
+    }
+
+    public SelectorBuilder doesNotExist(String key) {
+        return add(key, Operator.DOES_NOT_EXIST);
+    }
+
+    public SelectorBuilder gt(String key, long value) {
+        return add(key, Operator.GREATER_THAN, Long.toString(value));
+    }
+
+    public SelectorBuilder lt(String key, long value) {
+        return add(key, Operator.LESS_THAN, Long.toString(value));
+    }
+
+    // matchLabels adds an '=' requirement for every entry
+    public SelectorBuilder matchLabels(Map<String, String> labels) {
+        for (Entry<String, String> entry : labels.entrySet()) {
+            eq(entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * Returns a new selector with the requirements added so far, sorted by key like a parsed
+     * selector. The builder can keep being used afterwards.
+     */
+    public InternalSelector build() {
+        List<Requirement> sorted = new ArrayList<>(requirements);
+        sorted.sort(Comparator.comparing(Requirement::getKey));
+        return new InternalSelector(sorted);
+    }
+
+    private SelectorBuilder add(String key, Operator type, String... values) {
+        if (key == null) {
+            throw new SelectorException(SelectorException.Kind.INVALID_KEY, "label key is null");
+        }
+        if (values == null) {
+            throw new SelectorException(SelectorException.Kind.INVALID_REQUIREMENT,
+                    "values of '" + key + "' are null");
+        }
+        for (String value : values) {
+            if (value == null) {
+                throw new SelectorException(SelectorException.Kind.INVALID_VALUE,
+                        "value of '" + key + "' is null");
+            }
+        }
+        if (!trusted) {
+            requirements.add(Requirement.newRequirement(key, type.getSymbol(),
+                    Arrays.asList(values)));
+            return this;
+        }
+        if (values.length == 0 && (type == Operator.IN || type == Operator.NOT_IN)) {
+            throw new SelectorException(SelectorException.Kind.INVALID_REQUIREMENT,
+                    "for 'in', 'notin' operators, values set can't be empty");
+        }
+        List<String> vals;
+        if (values.length == 0) {
+            vals = Collections.emptyList();
+        } else if (values.length == 1) {
+            vals = Collections.singletonList(values[0]);
+        } else {
+            vals = Requirement.sortedUnique(values.clone());
+        }
+        requirements.add(Requirement.create(key, type, vals));
+        return this;
+    }
+
+    private static String[] toArray(Collection<String> values) {
+        return values == null ? null : values.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,130 @@
+package com.horizonzy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of parsed selectors. Selectors returned by {@link #parse(String)}
+ * are frozen and shared between all callers asking for the same selector string.
+ *
+ * <p>Entries are spread over independently locked LRU segments, so eviction is least recently
+ * used per segment rather than globally. Parse failures are never cached.
+ */
+public class SelectorCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    private final int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public SelectorCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= maximumSize) {
+            segmentCount *= 2;
+        }
+        // the first maximumSize % segmentCount segments hold one more, so the capacities add up
+        // to maximumSize exactly
+        int segmentCapacity = maximumSize / segmentCount;
+        int remainder = maximumSize % segmentCount;
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(i < remainder ? segmentCapacity + 1 : segmentCapacity);
+        }
+    }
+
+    public InternalSelector parse(String selector) {
+        Segment segment = segmentFor(selector);
+        InternalSelector cached;
+        synchronized (segment) {
+            cached = segment.get(selector);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        InternalSelector parsed = Selector.parse(selector).freeze();
+        synchronized (segment) {
+            InternalSelector raced = segment.get(selector);
+            if (raced != null) {
+                return raced;
+            }
+            segment.put(selector, parsed);
+        }
+        return parsed;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Segment segmentFor(String selector) {
+        int h = selector.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+
+    private class Segment extends LinkedHashMap<String, InternalSelector> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, InternalSelector> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.horizonzy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Compiles an {@link InternalSelector} into a tree of method handles with every key, operator
+ * and value bound as a constant, so evaluation does no operator dispatch or list iteration. The
+ * tree is held in a static final field of a class spun per selector, where the JIT can inline it.
+ */
+final class SelectorCompiler {
+
+    private static final MethodHandle MAP_GET;
+
+    private static final MethodHandle MAP_CONTAINS_KEY;
+
+    private static final MethodHandle STRING_EQUALS;
+
+    private static final MethodHandle VALUE_SET_CONTAINS;
+
+    private static final MethodHandle NOT;
+
+    private static final MethodHandle GREATER_THAN;
+
+    private static final MethodHandle LESS_THAN;
+
+    private static final MethodHandle TRUE;
+
+    private static final MethodHandle FALSE;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            MAP_GET = lookup.findVirtual(Map.class, "get",
+                    MethodType.methodType(Object.class, Object.class));
+            MAP_CONTAINS_KEY = lookup.findVirtual(Map.class, "containsKey",
+                    MethodType.methodType(boolean.class, Object.class));
+            STRING_EQUALS = lookup.findVirtual(String.class, "equals",
+                    MethodType.methodType(boolean.class, Object.class));
+            VALUE_SET_CONTAINS = lookup.findVirtual(ValueSet.class, "contains",
+                    MethodType.methodType(boolean.class, String.class));
+            NOT = lookup.findStatic(SelectorCompiler.class, "not",
+                    MethodType.methodType(boolean.class, boolean.class));
+            GREATER_THAN = lookup.findStatic(SelectorCompiler.class, "greaterThan",
+                    MethodType.methodType(boolean.class, Object.class, long.class));
+            LESS_THAN = lookup.findStatic(SelectorCompiler.class, "lessThan",
+                    MethodType.methodType(boolean.class, Object.class, long.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        TRUE = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true), 0,
+                Map.class);
+        FALSE = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false), 0,
+                Map.class);
+    }
+
+    private SelectorCompiler() {
+    }
+
+    static Predicate<Map<String, String>> compile(InternalSelector selector) {
+        List<Requirement> requirements = selector.getRequirementList();
+        MethodHandle handle = TRUE;
+        for (int i = requirements.size() - 1; i >= 0; i--) {
+            handle = MethodHandles.guardWithTest(compile(requirements.get(i)), handle, FALSE);
+        }
+        if (SelectorSpinner.SUPPORTED) {
+            return SelectorSpinner.spin(handle, selector.toString());
+        }
+        return new HandleSelector(handle, selector.toString());
+    }
+
+    // compile returns a (Map)boolean handle equivalent to Requirement.matches
+    static MethodHandle compile(Requirement requirement) {
+        String key = requirement.getKey();
+        Operator type = requirement.getOperatorType();
+        if (type == null) {
+            return FALSE;
+        }
+        switch (type) {
+            case IN:
+            case EQUALS:
+            case DOUBLE_EQUALS:
+                return MethodHandles.filterReturnValue(get(key), valueTest(requirement));
+            case NOT_IN:
+            case NOT_EQUALS:
+                return negate(MethodHandles.filterReturnValue(get(key), valueTest(requirement)));
+            case EXISTS:
+                return containsKey(key);
+            case DOES_NOT_EXIST:
+                return negate(containsKey(key));
+            default:
+                long operand = ((NumericCompareRequirement) requirement).operand();
+                return MethodHandles.filterReturnValue(get(key), MethodHandles.insertArguments(
+                        type == Operator.GREATER_THAN ? GREATER_THAN : LESS_THAN, 1, operand));
+        }
+    }
+
+    private static MethodHandle get(String key) {
+        return MethodHandles.insertArguments(MAP_GET, 1, key)
+                .asType(MethodType.methodType(Object.class, Map.class));
+    }
+
+    private static MethodHandle containsKey(String key) {
+        return MethodHandles.insertArguments(MAP_CONTAINS_KEY, 1, key)
+                .asType(MethodType.methodType(boolean.class, Map.class));
+    }
+
+    // valueTest returns an (Object)boolean handle that is false for a missing (null) label value
+    private static MethodHandle valueTest(Requirement requirement) {
+        List<String> values = requirement.getStrValues();
+        if (values.size() == 1) {
+            return STRING_EQUALS.bindTo(values.get(0));
+        }
+        return VALUE_SET_CONTAINS.bindTo(requirement.valueSet())
+                .asType(MethodType.methodType(boolean.class, Object.class));
+    }
+
+    private static MethodHandle negate(MethodHandle handle) {
+        return MethodHandles.filterReturnValue(handle, NOT);
+    }
+
+    private static boolean not(boolean value) {
+        return !value;
+    }
+
+    private static boolean greaterThan(Object value, long operand) {
+        String label = (String) value;
+        long number = NumericLabels.parseLong(label);
+        return number > operand
+                && (number != NumericLabels.NOT_LONG || NumericLabels.isLong(label));
+    }
+
+    private static boolean lessThan(Object value, long operand) {
+        String label = (String) value;
+        long number = NumericLabels.parseLong(label);
+        return number < operand
+                && (number != NumericLabels.NOT_LONG || NumericLabels.isLong(label));
+    }
+
+    // CompiledSelector is the predicate compile returns; SelectorSpinner subclasses it per
+    // selector
+    abstract static class CompiledSelector implements Predicate<Map<String, String>> {
+
+        private final String selector;
+
+        CompiledSelector(String selector) {
+            this.selector = selector;
+        }
+
+        @Override
+        public String toString() {
+            return "compiled(" + selector + ")";
+        }
+    }
+
+    // HandleSelector invokes the handle from an instance field, for runtimes without hidden
+    // classes
+    private static final class HandleSelector extends CompiledSelector {
+
+        private final MethodHandle handle;
+
+        HandleSelector(MethodHandle handle, String selector) {
+            super(selector);
+            this.handle = handle;
+        }
+
+        @Override
+        public boolean test(Map<String, String> labels) {
+            try {
+                return (boolean) handle.invokeExact(labels);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+}
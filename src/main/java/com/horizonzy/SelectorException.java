@@ -0,0 +1,42 @@
+package com.horizonzy;
+
+/**
+ * The IllegalArgumentException thrown for invalid label keys, label values and requirements,
+ * carrying which of those was wrong. Syntax errors found by the parser are plain
+ * IllegalArgumentExceptions.
+ */
+public class SelectorException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Kind {
+
+        // SYNTAX represents a selector string the parser could not read
+        SYNTAX,
+
+        // INVALID_KEY represents a label key failing validation
+        INVALID_KEY,
+
+        // INVALID_VALUE represents a label value failing validation
+        INVALID_VALUE,
+
+        // INVALID_REQUIREMENT represents an unsupported operator or a wrong number of values
+        INVALID_REQUIREMENT
+    }
+
+    private final Kind kind;
+
+    public SelectorException(Kind kind, String message) {
+        super(message);
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    // kindOf classifies any exception thrown while parsing a selector
+    static Kind kindOf(IllegalArgumentException e) {
+        return e instanceof SelectorException ? ((SelectorException) e).kind : Kind.SYNTAX;
+    }
+}
@@ -0,0 +1,37 @@
+package com.horizonzy;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Collapses structurally equal selectors into one shared, frozen instance. Entries are weakly
+ * held and disappear once no caller references the shared instance any more.
+ */
+public class SelectorInterner {
+
+    private static final SelectorInterner SHARED = new SelectorInterner();
+
+    private final Map<InternalSelector, WeakReference<InternalSelector>> instances =
+            new WeakHashMap<>();
+
+    // shared returns the interner used by InternalSelector.intern()
+    public static SelectorInterner shared() {
+        return SHARED;
+    }
+
+    public synchronized InternalSelector intern(InternalSelector selector) {
+        WeakReference<InternalSelector> reference = instances.get(selector);
+        InternalSelector instance = reference == null ? null : reference.get();
+        if (instance != null) {
+            return instance;
+        }
+        selector.freeze();
+        instances.put(selector, new WeakReference<>(selector));
+        return selector;
+    }
+
+    public synchronized int size() {
+        return instances.size();
+    }
+}
@@ -0,0 +1,45 @@
+package com.horizonzy;
+
+/**
+ * Receives parse, validation and match events once registered with
+ * {@link Selector#setMetrics(SelectorMetrics)}. Callbacks run on the calling thread and must be
+ * thread-safe and cheap. While no listener is registered, nothing is measured or reported.
+ *
+ * @see SelectorStats
+ */
+public interface SelectorMetrics {
+
+    /**
+     * Called after {@link Selector#parse(String)} succeeded.
+     */
+    default void parsed(String selector, long nanos) {
+    }
+
+    /**
+     * Called after {@link Selector#parse(String)} failed.
+     */
+    default void parseFailed(String selector, SelectorException.Kind kind, long nanos) {
+    }
+
+    /**
+     * Called when a label key ({@link SelectorException.Kind#INVALID_KEY}) or value
+     * ({@link SelectorException.Kind#INVALID_VALUE}) fails validation.
+     */
+    default void validationFailed(SelectorException.Kind kind, String input) {
+    }
+
+    /**
+     * Called for every requirement evaluated by {@link InternalSelector#matches} of a selector
+     * parsed while a listener was registered. Requirements after the first rejecting one are not
+     * evaluated.
+     */
+    default void requirementEvaluated(Requirement requirement, boolean matched) {
+    }
+
+    /**
+     * Called once per {@link InternalSelector#matches} call of a selector parsed while a listener
+     * was registered, with its result.
+     */
+    default void selectorEvaluated(InternalSelector selector, boolean matched) {
+    }
+}
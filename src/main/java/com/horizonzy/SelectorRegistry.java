@@ -0,0 +1,385 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers the reverse question of {@link LabelIndex}: which registered selectors match a given
+ * label set. Each selector is indexed under one mandatory requirement, an '=' or '==' value, the
+ * values of an 'in' list, or the key of an 'exists', 'gt' or 'lt' requirement, so only selectors
+ * sharing a label with the object are evaluated. Selectors without such a requirement are kept
+ * in a residual list that is always evaluated.
+ *
+ * <p>{@link #delta(Map, Map)} answers which selectors flipped when an object's labels changed by
+ * looking only at the selectors, and within them only at the requirements, that read a changed
+ * key.
+ *
+ * <p>Payloads identify registrations; registering a payload again replaces its selector.
+ */
+public class SelectorRegistry<T> {
+
+    private final Map<T, Registration<T>> registrations = new HashMap<>();
+
+    private final Map<String, Map<String, Set<Registration<T>>>> byKeyValue = new HashMap<>();
+
+    private final Map<String, Set<Registration<T>>> byKey = new HashMap<>();
+
+    private final Set<Registration<T>> residual = new LinkedHashSet<>();
+
+    // byRequirementKey holds every registration under every key its selector reads
+    private final Map<String, Set<Registration<T>>> byRequirementKey = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void register(InternalSelector selector, T payload) {
+        Registration<T> registration = new Registration<>(selector, payload,
+                indexRequirement(selector));
+        lock.writeLock().lock();
+        try {
+            Registration<T> previous = registrations.put(payload, registration);
+            if (previous != null) {
+                unlink(previous);
+            }
+            link(registration);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean unregister(T payload) {
+        lock.writeLock().lock();
+        try {
+            Registration<T> previous = registrations.remove(payload);
+            if (previous == null) {
+                return false;
+            }
+            unlink(previous);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return registrations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int residualSize() {
+        lock.readLock().lock();
+        try {
+            return residual.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the payloads of every registered selector matching the labels.
+     */
+    public List<T> matching(Map<String, String> labels) {
+        List<T> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, String> label : labels.entrySet()) {
+                Map<String, Set<Registration<T>>> values = byKeyValue.get(label.getKey());
+                if (values != null) {
+                    collect(values.get(label.getValue()), labels, result);
+                }
+                collect(byKey.get(label.getKey()), labels, result);
+            }
+            collect(residual, labels, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the payloads whose selectors read at least one of the keys, the only ones whose
+     * match result a change of those keys can affect.
+     */
+    public Set<T> affectedBy(Collection<String> changedKeys) {
+        Set<T> result = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            for (String key : changedKeys) {
+                Set<Registration<T>> registrations = byRequirementKey.get(key);
+                if (registrations != null) {
+                    for (Registration<T> registration : registrations) {
+                        result.add(registration.payload);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the payloads whose selectors stopped or started matching when an object's labels
+     * changed from oldLabels to newLabels. Requirements on unchanged keys evaluate the same
+     * before and after, so they are only consulted for selectors whose requirements on the
+     * changed keys flipped.
+     */
+    public Delta<T> delta(Map<String, String> oldLabels, Map<String, String> newLabels) {
+        Set<String> changedKeys = new LinkedHashSet<>();
+        for (Map.Entry<String, String> label : oldLabels.entrySet()) {
+            if (!newLabels.containsKey(label.getKey())
+                    || !Objects.equals(label.getValue(), newLabels.get(label.getKey()))) {
+                changedKeys.add(label.getKey());
+            }
+        }
+        for (String key : newLabels.keySet()) {
+            if (!oldLabels.containsKey(key)) {
+                changedKeys.add(key);
+            }
+        }
+
+        List<T> added = new ArrayList<>();
+        List<T> removed = new ArrayList<>();
+        Set<Registration<T>> visited = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            for (String key : changedKeys) {
+                Set<Registration<T>> registrations = byRequirementKey.get(key);
+                if (registrations == null) {
+                    continue;
+                }
+                for (Registration<T> registration : registrations) {
+                    if (!visited.add(registration)) {
+                        continue;
+                    }
+                    boolean before = registration.matches(changedKeys, oldLabels);
+                    boolean after = registration.matches(changedKeys, newLabels);
+                    if (before != after && registration.matchesUnchanged(changedKeys,
+                            newLabels)) {
+                        (after ? added : removed).add(registration.payload);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Delta<>(added, removed);
+    }
+
+    private static <T> void collect(Set<Registration<T>> candidates, Map<String, String> labels,
+            List<T> result) {
+        if (candidates == null) {
+            return;
+        }
+        for (Registration<T> candidate : candidates) {
+            if (candidate.selector.matches(labels)) {
+                result.add(candidate.payload);
+            }
+        }
+    }
+
+    // indexRequirement picks the most selective requirement every matching label set must
+    // satisfy through one of its labels: a single value beats an 'in' list, which beats a key.
+    private static Requirement indexRequirement(InternalSelector selector) {
+        Requirement best = null;
+        int bestCost = Integer.MAX_VALUE;
+        for (Requirement requirement : selector.getRequirementList()) {
+            Operator type = requirement.getOperatorType();
+            if (type == null) {
+                continue;
+            }
+            int cost;
+            switch (type) {
+                case EQUALS:
+                case DOUBLE_EQUALS:
+                case IN:
+                    cost = requirement.getStrValues().size();
+                    break;
+                case EXISTS:
+                case GREATER_THAN:
+                case LESS_THAN:
+                    cost = Integer.MAX_VALUE - 1;
+                    break;
+                default:
+                    continue;
+            }
+            if (cost < bestCost) {
+                best = requirement;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    private static boolean indexedByValue(Requirement requirement) {
+        Operator type = requirement.getOperatorType();
+        return type == Operator.EQUALS || type == Operator.DOUBLE_EQUALS || type == Operator.IN;
+    }
+
+    private void link(Registration<T> registration) {
+        for (String key : registration.byKey.keySet()) {
+            Set<Registration<T>> posting = byRequirementKey.get(key);
+            if (posting == null) {
+                posting = new LinkedHashSet<>();
+                byRequirementKey.put(key, posting);
+            }
+            posting.add(registration);
+        }
+        Requirement requirement = registration.index;
+        if (requirement == null) {
+            residual.add(registration);
+        } else if (indexedByValue(requirement)) {
+            Map<String, Set<Registration<T>>> values = byKeyValue.get(requirement.getKey());
+            if (values == null) {
+                values = new HashMap<>();
+                byKeyValue.put(requirement.getKey(), values);
+            }
+            for (String value : requirement.getStrValues()) {
+                Set<Registration<T>> posting = values.get(value);
+                if (posting == null) {
+                    posting = new LinkedHashSet<>();
+                    values.put(value, posting);
+                }
+                posting.add(registration);
+            }
+        } else {
+            Set<Registration<T>> posting = byKey.get(requirement.getKey());
+            if (posting == null) {
+                posting = new LinkedHashSet<>();
+                byKey.put(requirement.getKey(), posting);
+            }
+            posting.add(registration);
+        }
+    }
+
+    private void unlink(Registration<T> registration) {
+        for (String key : registration.byKey.keySet()) {
+            Set<Registration<T>> posting = byRequirementKey.get(key);
+            posting.remove(registration);
+            if (posting.isEmpty()) {
+                byRequirementKey.remove(key);
+            }
+        }
+        Requirement requirement = registration.index;
+        if (requirement == null) {
+            residual.remove(registration);
+        } else if (indexedByValue(requirement)) {
+            Map<String, Set<Registration<T>>> values = byKeyValue.get(requirement.getKey());
+            for (String value : requirement.getStrValues()) {
+                Set<Registration<T>> posting = values.get(value);
+                if (posting != null && posting.remove(registration) && posting.isEmpty()) {
+                    values.remove(value);
+                }
+            }
+            if (values.isEmpty()) {
+                byKeyValue.remove(requirement.getKey());
+            }
+        } else {
+            Set<Registration<T>> posting = byKey.get(requirement.getKey());
+            posting.remove(registration);
+            if (posting.isEmpty()) {
+                byKey.remove(requirement.getKey());
+            }
+        }
+    }
+
+    private static final class Registration<T> {
+
+        private final InternalSelector selector;
+
+        private final T payload;
+
+        private final Requirement index;
+
+        // byKey groups the selector's requirements by the key they read
+        private final Map<String, List<Requirement>> byKey = new HashMap<>();
+
+        Registration(InternalSelector selector, T payload, Requirement index) {
+            this.selector = selector;
+            this.payload = payload;
+            this.index = index;
+            for (String key : selector.keys()) {
+                byKey.put(key, new ArrayList<>());
+            }
+            for (Requirement requirement : selector.getRequirementList()) {
+                byKey.get(requirement.getKey()).add(requirement);
+            }
+        }
+
+        // matches evaluates the requirements on the given keys only
+        boolean matches(Set<String> keys, Map<String, String> labels) {
+            for (String key : keys) {
+                List<Requirement> requirements = byKey.get(key);
+                if (requirements != null) {
+                    for (Requirement requirement : requirements) {
+                        if (!requirement.matches(labels)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        // matchesUnchanged evaluates the requirements on every key except the given ones
+        boolean matchesUnchanged(Set<String> keys, Map<String, String> labels) {
+            for (Map.Entry<String, List<Requirement>> entry : byKey.entrySet()) {
+                if (keys.contains(entry.getKey())) {
+                    continue;
+                }
+                for (Requirement requirement : entry.getValue()) {
+                    if (!requirement.matches(labels)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The payloads whose selectors started matching ({@link #getAdded()}) or stopped matching
+     * ({@link #getRemoved()}) after a label change.
+     */
+    public static final class Delta<T> {
+
+        private final List<T> added;
+
+        private final List<T> removed;
+
+        Delta(List<T> added, List<T> removed) {
+            this.added = Collections.unmodifiableList(added);
+            this.removed = Collections.unmodifiableList(removed);
+        }
+
+        public List<T> getAdded() {
+            return added;
+        }
+
+        public List<T> getRemoved() {
+            return removed;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "added=" + added + ", removed=" + removed;
+        }
+    }
+}
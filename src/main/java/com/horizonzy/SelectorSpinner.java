@@ -0,0 +1,230 @@
+package com.horizonzy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spins a hidden class per compiled selector that holds its method handle in a static final
+ * field. The JIT treats static finals as constants, so it inlines the whole handle tree into
+ * {@code test} instead of dispatching through a handle loaded from an instance field.
+ *
+ * <p>The class is assembled by hand, as it is tiny and has no branches: a constructor passing
+ * the selector text to {@link SelectorCompiler.CompiledSelector}, a static initializer reading
+ * the handle from the class data, and {@code test} invoking it.
+ */
+final class SelectorSpinner {
+
+    // SUPPORTED reports whether the runtime can define hidden classes with class data
+    static final boolean SUPPORTED = hasHiddenClasses();
+
+    private static final String NAME = "com/horizonzy/SelectorCompiler$Spun";
+
+    private static final String SUPER = "com/horizonzy/SelectorCompiler$CompiledSelector";
+
+    private static final String HANDLE = "java/lang/invoke/MethodHandle";
+
+    private static final int ACC_PUBLIC = 0x0001;
+
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private static final int ACC_STATIC = 0x0008;
+
+    private static final int ACC_FINAL = 0x0010;
+
+    private static final int ACC_SUPER = 0x0020;
+
+    // BYTES is the class file, the same for every selector as the handle is class data
+    private static final byte[] BYTES = assemble();
+
+    private SelectorSpinner() {
+    }
+
+    /**
+     * Returns a predicate invoking handle, a (Map)boolean method handle, from a static final
+     * field of a new hidden class. The class is unloaded along with the predicate.
+     */
+    static SelectorCompiler.CompiledSelector spin(MethodHandle handle, String selector) {
+        try {
+            Class<?> spun = MethodHandles.lookup()
+                    .defineHiddenClassWithClassData(BYTES, handle, true).lookupClass();
+            return (SelectorCompiler.CompiledSelector) spun.getDeclaredConstructor(String.class)
+                    .newInstance(selector);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot define compiled selector", e);
+        }
+    }
+
+    private static boolean hasHiddenClasses() {
+        for (Method method : MethodHandles.Lookup.class.getMethods()) {
+            if (method.getName().equals("defineHiddenClassWithClassData")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] assemble() {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classRef(NAME);
+        int superClass = pool.classRef(SUPER);
+        int handleField = pool.memberRef(9, NAME, "H", "L" + HANDLE + ";");
+        int superInit = pool.memberRef(10, SUPER, "<init>", "(Ljava/lang/String;)V");
+        int lookup = pool.memberRef(10, "java/lang/invoke/MethodHandles", "lookup",
+                "()Ljava/lang/invoke/MethodHandles$Lookup;");
+        int classData = pool.memberRef(10, "java/lang/invoke/MethodHandles", "classData",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)"
+                        + "Ljava/lang/Object;");
+        int invokeExact = pool.memberRef(10, HANDLE, "invokeExact", "(Ljava/util/Map;)Z");
+        int defaultName = pool.string("_");
+        int handleClass = pool.classRef(HANDLE);
+        int mapClass = pool.classRef("java/util/Map");
+
+        byte[] init = {
+                0x2a,                                          // aload_0
+                0x2b,                                          // aload_1
+                (byte) 0xb7, hi(superInit), lo(superInit),     // invokespecial
+                (byte) 0xb1                                    // return
+        };
+        byte[] clinit = {
+                (byte) 0xb8, hi(lookup), lo(lookup),           // invokestatic
+                0x13, hi(defaultName), lo(defaultName),        // ldc_w
+                0x13, hi(handleClass), lo(handleClass),        // ldc_w
+                (byte) 0xb8, hi(classData), lo(classData),     // invokestatic
+                (byte) 0xc0, hi(handleClass), lo(handleClass), // checkcast
+                (byte) 0xb3, hi(handleField), lo(handleField), // putstatic
+                (byte) 0xb1                                    // return
+        };
+        byte[] test = {
+                (byte) 0xb2, hi(handleField), lo(handleField), // getstatic
+                0x2b,                                          // aload_1
+                (byte) 0xc0, hi(mapClass), lo(mapClass),       // checkcast
+                (byte) 0xb6, hi(invokeExact), lo(invokeExact), // invokevirtual
+                (byte) 0xac                                    // ireturn
+        };
+        int code = pool.utf8("Code");
+        int[] initNames = {pool.utf8("<init>"), pool.utf8("(Ljava/lang/String;)V")};
+        int[] clinitNames = {pool.utf8("<clinit>"), pool.utf8("()V")};
+        int[] testNames = {pool.utf8("test"), pool.utf8("(Ljava/lang/Object;)Z")};
+        int[] fieldNames = {pool.utf8("H"), pool.utf8("L" + HANDLE + ";")};
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            pool.write(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+
+            out.writeShort(1);
+            out.writeShort(ACC_PRIVATE | ACC_STATIC | ACC_FINAL);
+            out.writeShort(fieldNames[0]);
+            out.writeShort(fieldNames[1]);
+            out.writeShort(0);
+
+            out.writeShort(3);
+            writeMethod(out, ACC_PUBLIC, initNames, code, 2, 2, init);
+            writeMethod(out, ACC_STATIC, clinitNames, code, 3, 0, clinit);
+            writeMethod(out, ACC_PUBLIC | ACC_FINAL, testNames, code, 2, 2, test);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int access, int[] names, int code,
+            int maxStack, int maxLocals, byte[] instructions) throws IOException {
+        out.writeShort(access);
+        out.writeShort(names[0]);
+        out.writeShort(names[1]);
+        out.writeShort(1);
+        out.writeShort(code);
+        out.writeInt(12 + instructions.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(instructions.length);
+        out.write(instructions);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static byte hi(int index) {
+        return (byte) (index >>> 8);
+    }
+
+    private static byte lo(int index) {
+        return (byte) index;
+    }
+
+    // ConstantPool represents the constant pool of the class being assembled
+    private static final class ConstantPool {
+
+        private final List<byte[]> entries = new ArrayList<>();
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        int utf8(String value) {
+            return add("U" + value, 1, value, 0, 0);
+        }
+
+        int classRef(String name) {
+            return add("C" + name, 7, null, utf8(name), -1);
+        }
+
+        int string(String value) {
+            return add("S" + value, 8, null, utf8(value), -1);
+        }
+
+        // memberRef adds a field (tag 9) or method (tag 10) reference
+        int memberRef(int tag, String owner, String name, String descriptor) {
+            int nameAndType = add("N" + name + ":" + descriptor, 12, null, utf8(name),
+                    utf8(descriptor));
+            return add(tag + owner + "." + name + ":" + descriptor, tag, null, classRef(owner),
+                    nameAndType);
+        }
+
+        private int add(String id, int tag, String value, int first, int second) {
+            Integer index = indexes.get(id);
+            if (index != null) {
+                return index;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(tag);
+                if (value != null) {
+                    out.writeUTF(value);
+                } else {
+                    out.writeShort(first);
+                    if (second >= 0) {
+                        out.writeShort(second);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            entries.add(bytes.toByteArray());
+            index = entries.size();
+            indexes.put(id, index);
+            return index;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeShort(entries.size() + 1);
+            for (byte[] entry : entries) {
+                out.write(entry);
+            }
+        }
+    }
+}
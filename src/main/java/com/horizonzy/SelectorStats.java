@@ -0,0 +1,121 @@
+package com.horizonzy;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link SelectorMetrics} that keeps thread-safe counters: a parse latency histogram with
+ * power-of-two nanosecond buckets, failures by kind, and requirement evaluations and rejections
+ * per operator.
+ */
+public class SelectorStats implements SelectorMetrics {
+
+    // bucket i counts latencies in [2^i, 2^(i+1)) nanoseconds, bucket 0 also counts zero
+    private final LongAdder[] parseLatency = adders(Long.SIZE);
+
+    private final LongAdder parseNanos = new LongAdder();
+
+    private final LongAdder[] parseFailures = adders(SelectorException.Kind.values().length);
+
+    private final LongAdder[] validationFailures = adders(SelectorException.Kind.values().length);
+
+    private final LongAdder[] evaluations = adders(Operator.values().length);
+
+    private final LongAdder[] rejections = adders(Operator.values().length);
+
+    private final LongAdder selectorMatches = new LongAdder();
+
+    private final LongAdder selectorRejections = new LongAdder();
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    @Override
+    public void parsed(String selector, long nanos) {
+        parseLatency[bucket(nanos)].increment();
+        parseNanos.add(nanos);
+    }
+
+    @Override
+    public void parseFailed(String selector, SelectorException.Kind kind, long nanos) {
+        parseFailures[kind.ordinal()].increment();
+    }
+
+    @Override
+    public void validationFailed(SelectorException.Kind kind, String input) {
+        validationFailures[kind.ordinal()].increment();
+    }
+
+    @Override
+    public void requirementEvaluated(Requirement requirement, boolean matched) {
+        Operator type = requirement.getOperatorType();
+        if (type == null) {
+            return;
+        }
+        evaluations[type.ordinal()].increment();
+        if (!matched) {
+            rejections[type.ordinal()].increment();
+        }
+    }
+
+    @Override
+    public void selectorEvaluated(InternalSelector selector, boolean matched) {
+        (matched ? selectorMatches : selectorRejections).increment();
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(nanos) - 1;
+    }
+
+    /**
+     * Returns the parse latency histogram: element i counts successful parses that took at least
+     * 2^i and less than 2^(i+1) nanoseconds.
+     */
+    public long[] parseLatencyHistogram() {
+        long[] histogram = new long[parseLatency.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = parseLatency[i].sum();
+        }
+        return histogram;
+    }
+
+    public long parseCount() {
+        long count = 0;
+        for (LongAdder bucket : parseLatency) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long parseNanos() {
+        return parseNanos.sum();
+    }
+
+    public long parseFailures(SelectorException.Kind kind) {
+        return parseFailures[kind.ordinal()].sum();
+    }
+
+    public long validationFailures(SelectorException.Kind kind) {
+        return validationFailures[kind.ordinal()].sum();
+    }
+
+    public long evaluations(Operator operator) {
+        return evaluations[operator.ordinal()].sum();
+    }
+
+    public long rejections(Operator operator) {
+        return rejections[operator.ordinal()].sum();
+    }
+
+    public long selectorMatches() {
+        return selectorMatches.sum();
+    }
+
+    public long selectorRejections() {
+        return selectorRejections.sum();
+    }
+}
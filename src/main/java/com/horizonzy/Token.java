@@ -44,5 +44,12 @@ public class Token {
     // OpenParToken represents open parenthesis
     public static final int OpenParToken = 13;
 
+    private static final String[] literals = new String[]{"", "", ")", ",", "!", "==", "=", ">",
+            "", "in", "<", "!=", "notin", "("};
+
+    // literal returns the fixed source text of an operator or punctuation token
+    public static String literal(int token) {
+        return literals[token];
+    }
 
 }
@@ -1,7 +1,5 @@
 package com.horizonzy;
 
-import java.util.regex.Pattern;
-
 public class Validation {
 
     private static final int LabelValueMaxLength = 63;
@@ -10,64 +8,91 @@ public class Validation {
 
     private static final int DNS1123SubdomainMaxLength = 253;
 
-    private static final String dns1123LabelFmt = "[a-z0-9]([-a-z0-9]*[a-z0-9])?";
-
-    private static final String dns1123SubdomainFmt =
-            dns1123LabelFmt + "(\\." + dns1123LabelFmt + ")*";
+    static final String dns1123LabelFmt = "[a-z0-9]([-a-z0-9]*[a-z0-9])?";
 
-    private static final Pattern dns1123SubdomainRegexp = Pattern
-            .compile("^" + dns1123SubdomainFmt + "$");
+    static final String dns1123SubdomainFmt = dns1123LabelFmt + "(\\." + dns1123LabelFmt + ")*";
 
     private static final String dns1123SubdomainErrorMsg = "a lowercase RFC 1123 subdomain must consist of lower case alphanumeric characters, '-' or '.', and must start and end with an alphanumeric character";
 
-    private static final String qnameCharFmt = "[A-Za-z0-9]";
+    static final String qnameCharFmt = "[A-Za-z0-9]";
 
-    private static final String qnameExtCharFmt = "[-A-Za-z0-9_.]";
+    static final String qnameExtCharFmt = "[-A-Za-z0-9_.]";
 
     private static final String qualifiedNameErrMsg = "must consist of alphanumeric characters, '-', '_' or '.', and must start and end with an alphanumeric character";
 
     private static final String labelValueErrMsg = "a valid label must be an empty string or consist of alphanumeric characters, '-', '_' or '.', and must start and end with an alphanumeric character";
 
-    private static final String qualifiedNameFmt =
+    static final String qualifiedNameFmt =
             "(" + qnameCharFmt + qnameExtCharFmt + "*)?" + qnameCharFmt;
 
-    private static final Pattern qualifiedNameRegexp = Pattern
-            .compile("^" + qualifiedNameFmt + "$");
+    static final String labelValueFmt = "(" + qualifiedNameFmt + ")?";
 
-    private static final String labelValueFmt = "(" + qualifiedNameFmt + ")?";
+    // Character classes of the formats above, indexed by ASCII code. Anything outside ASCII
+    // belongs to no class.
 
-    private static final Pattern labelValueRegexp = Pattern.compile("^" + labelValueFmt + "$");
+    // QNAME_CHAR represents qnameCharFmt
+    private static final byte QNAME_CHAR = 1;
 
+    // QNAME_EXT_CHAR represents qnameExtCharFmt
+    private static final byte QNAME_EXT_CHAR = 2;
 
-    public static void isQualifiedName(String value) {
+    // DNS_CHAR represents [a-z0-9]
+    private static final byte DNS_CHAR = 4;
 
-        String[] parts = value.split("/");
-
-        String name;
-        if (parts.length == 1) {
-            name = parts[0];
-        } else if (parts.length == 2) {
-            String prefix = parts[0];
-            name = parts[1];
-            if (prefix.length() == 0) {
-                throw new IllegalArgumentException(nonEmptyError("prefix part"));
-            } else {
-                isDNS1123Subdomain(prefix);
-            }
-        } else {
-            throw new IllegalArgumentException(
+    // DNS_EXT_CHAR represents [-a-z0-9]
+    private static final byte DNS_EXT_CHAR = 8;
+
+    private static final byte[] charClasses = new byte[128];
+
+    static {
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            charClasses[ch] = QNAME_CHAR | QNAME_EXT_CHAR | DNS_CHAR | DNS_EXT_CHAR;
+        }
+        for (char ch = '0'; ch <= '9'; ch++) {
+            charClasses[ch] = QNAME_CHAR | QNAME_EXT_CHAR | DNS_CHAR | DNS_EXT_CHAR;
+        }
+        for (char ch = 'A'; ch <= 'Z'; ch++) {
+            charClasses[ch] = QNAME_CHAR | QNAME_EXT_CHAR;
+        }
+        charClasses['-'] = QNAME_EXT_CHAR | DNS_EXT_CHAR;
+        charClasses['_'] = QNAME_EXT_CHAR;
+        charClasses['.'] = QNAME_EXT_CHAR;
+    }
+
+    public static void isQualifiedName(String value) {
+        // Split on '/' the way String.split("/") does: trailing empty parts are dropped, so "a/"
+        // is the single part "a" and "/" has no parts at all.
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == '/') {
+            end--;
+        }
+        int slash = value.indexOf('/');
+        boolean hasPrefix = slash >= 0 && slash < end;
+        int second = hasPrefix ? value.indexOf('/', slash + 1) : -1;
+        if ((end == 0 && value.length() > 0) || (second >= 0 && second < end)) {
+            throw invalidKey(value,
                     "a qualified name " + regexError(qualifiedNameErrMsg, qualifiedNameFmt,
                             "MyName", "my.name", "123-abc")
                             + " with an optional DNS subdomain prefix and '/' (e.g. 'example.com/MyName')");
         }
 
-        if (name.length() == 0) {
-            throw new IllegalArgumentException(nonEmptyError("name part"));
-        } else if (name.length() > qualifiedNameMaxLength) {
-            throw new IllegalArgumentException("name part " + maxLenError(qualifiedNameMaxLength));
+        int nameStart = 0;
+        if (hasPrefix) {
+            if (slash == 0) {
+                throw invalidKey(value, nonEmptyError("prefix part"));
+            }
+            isDNS1123Subdomain(value, 0, slash);
+            nameStart = slash + 1;
         }
-        if (!qualifiedNameRegexp.matcher(name).matches()) {
-            throw new IllegalArgumentException(
+
+        int nameLength = end - nameStart;
+        if (nameLength == 0) {
+            throw invalidKey(value, nonEmptyError("name part"));
+        } else if (nameLength > qualifiedNameMaxLength) {
+            throw invalidKey(value, "name part " + maxLenError(qualifiedNameMaxLength));
+        }
+        if (!matchesQualifiedName(value, nameStart, end)) {
+            throw invalidKey(value,
                     "name part " + regexError(qualifiedNameErrMsg, qualifiedNameFmt, "MyName",
                             "my.name", "123-abc"));
         }
@@ -75,26 +100,89 @@ public class Validation {
     }
 
     public static void isDNS1123Subdomain(String value) {
-        if (value.length() > DNS1123SubdomainMaxLength) {
-            throw new IllegalArgumentException(maxLenError(DNS1123SubdomainMaxLength));
+        isDNS1123Subdomain(value, 0, value.length());
+    }
+
+    private static void isDNS1123Subdomain(String value, int start, int end) {
+        if (end - start > DNS1123SubdomainMaxLength) {
+            throw invalidKey(value, maxLenError(DNS1123SubdomainMaxLength));
         }
-        if (!dns1123SubdomainRegexp.matcher(value).matches()) {
-            throw new IllegalArgumentException(
+        if (!matchesDNS1123Subdomain(value, start, end)) {
+            throw invalidKey(value,
                     regexError(dns1123SubdomainErrorMsg, dns1123SubdomainFmt, "example.com"));
         }
     }
 
     public static void isValidLabelValue(String value) {
         if (value.length() > LabelValueMaxLength) {
-            throw new IllegalArgumentException(maxLenError(LabelValueMaxLength));
+            throw invalidValue(value, maxLenError(LabelValueMaxLength));
         }
-        if (!labelValueRegexp.matcher(value).matches()) {
-            throw new IllegalArgumentException(
+        if (value.length() > 0 && !matchesQualifiedName(value, 0, value.length())) {
+            throw invalidValue(value,
                     regexError(labelValueErrMsg, labelValueFmt, "MyValue", "my_value", "12345"));
         }
 
     }
 
+    // matchesQualifiedName reports whether value[start, end) matches qualifiedNameFmt
+    private static boolean matchesQualifiedName(String value, int start, int end) {
+        if (end <= start || !is(value.charAt(start), QNAME_CHAR)
+                || !is(value.charAt(end - 1), QNAME_CHAR)) {
+            return false;
+        }
+        for (int i = start + 1; i < end - 1; i++) {
+            if (!is(value.charAt(i), QNAME_EXT_CHAR)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // matchesDNS1123Subdomain reports whether value[start, end) matches dns1123SubdomainFmt, a
+    // non-empty list of '.' separated dns1123LabelFmt labels
+    private static boolean matchesDNS1123Subdomain(String value, int start, int end) {
+        int labelStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i < end && value.charAt(i) != '.') {
+                continue;
+            }
+            if (i == labelStart || !is(value.charAt(labelStart), DNS_CHAR)
+                    || !is(value.charAt(i - 1), DNS_CHAR)) {
+                return false;
+            }
+            for (int j = labelStart + 1; j < i - 1; j++) {
+                if (!is(value.charAt(j), DNS_EXT_CHAR)) {
+                    return false;
+                }
+            }
+            labelStart = i + 1;
+        }
+        return true;
+    }
+
+    private static boolean is(char ch, byte charClass) {
+        return ch < 128 && (charClasses[ch] & charClass) != 0;
+    }
+
+    private static SelectorException invalidKey(String key, String message) {
+        return invalid(SelectorException.Kind.INVALID_KEY, key, message);
+    }
+
+    private static SelectorException invalidValue(String value, String message) {
+        return invalid(SelectorException.Kind.INVALID_VALUE, value, message);
+    }
+
+    // invalid reports a validation failure to the registered metrics listener and returns the
+    // exception to throw
+    private static SelectorException invalid(SelectorException.Kind kind, String value,
+            String message) {
+        SelectorMetrics listener = Selector.metrics();
+        if (listener != null) {
+            listener.validationFailed(kind, value);
+        }
+        return new SelectorException(kind, message);
+    }
+
     private static String maxLenError(int length) {
         return String.format("must be no more than %d characters", length);
     }
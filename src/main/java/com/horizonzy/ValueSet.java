@@ -0,0 +1,109 @@
+package com.horizonzy;
+
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * An immutable set of requirement values whose layout is chosen by cardinality: up to
+ * {@link #INLINE_MAX} values are held in fields and compared one by one, larger sets in an
+ * open-addressing hash table.
+ */
+abstract class ValueSet {
+
+    // INLINE_MAX is the last size ValueSetBenchmark shows comparing every field beating the
+    // hash table at; a sorted array searched by bisection was slower than both at every size
+    static final int INLINE_MAX = 2;
+
+    static final ValueSet EMPTY = new Inline(new String[0]);
+
+    static ValueSet of(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY;
+        }
+        String[] sorted = new TreeSet<>(values).toArray(new String[0]);
+        if (sorted.length <= INLINE_MAX) {
+            return new Inline(sorted);
+        }
+        return new Hashed(sorted);
+    }
+
+    abstract boolean contains(String value);
+
+    abstract int size();
+
+    private static final class Inline extends ValueSet {
+
+        private final String v0;
+
+        private final String v1;
+
+        private final int size;
+
+        Inline(String[] values) {
+            size = values.length;
+            v0 = size > 0 ? values[0] : null;
+            v1 = size > 1 ? values[1] : null;
+        }
+
+        @Override
+        boolean contains(String value) {
+            return value != null && (value.equals(v0) || value.equals(v1));
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+    }
+
+    static final class Hashed extends ValueSet {
+
+        private final String[] table;
+
+        private final int mask;
+
+        private final int size;
+
+        Hashed(String[] values) {
+            int capacity = Integer.highestOneBit(values.length * 2 - 1) << 1;
+            table = new String[capacity];
+            mask = capacity - 1;
+            size = values.length;
+            for (String value : values) {
+                int i = spread(value.hashCode()) & mask;
+                while (table[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+
+        @Override
+        boolean contains(String value) {
+            if (value == null) {
+                return false;
+            }
+            int i = spread(value.hashCode()) & mask;
+            for (; ; ) {
+                String candidate = table[i];
+                if (candidate == null) {
+                    return false;
+                }
+                if (candidate.equals(value)) {
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        private static int spread(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColumnarLabelStoreTest {
+
+    private static final List<String> SELECTORS = Arrays.asList(
+            "", "app=web", "app==web,tier=backend", "app in (web,db)", "app notin (web)",
+            "app!=db", "tier", "!tier", "app,!tier", "tier notin (backend),env in (prod,qa)",
+            "app=web,env!=prod", "priority>2", "priority<3,app", "!app,!tier",
+            "env in (prod),priority>0,tier!=frontend", "missing=x", "!missing", "missing!=x");
+
+    @Test
+    public void testSelectMatchesFullScan() {
+        Random random = new Random(42);
+        ColumnarLabelStore store = new ColumnarLabelStore();
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> labels = randomLabels(random);
+            Assert.assertEquals(i, store.add(labels));
+            rows.add(labels);
+        }
+        Assert.assertEquals(rows.size(), store.size());
+
+        for (String selector : SELECTORS) {
+            InternalSelector internalSelector = Selector.parse(selector);
+            List<Integer> want = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                if (internalSelector.matches(rows.get(i))) {
+                    want.add(i);
+                }
+            }
+            List<Integer> got = new ArrayList<>();
+            for (int row : store.select(internalSelector)) {
+                got.add(row);
+            }
+            Assert.assertEquals(selector, want, got);
+            Assert.assertEquals(selector, want.size(), store.count(internalSelector));
+        }
+    }
+
+    @Test
+    public void testGet() {
+        ColumnarLabelStore store = new ColumnarLabelStore();
+        Map<String, String> labels = new HashMap<>();
+        labels.put("app", "web");
+        store.add(labels);
+        store.add(Collections.singletonMap("tier", "backend"));
+        store.add(null);
+
+        Assert.assertEquals("web", store.get(0, "app"));
+        Assert.assertNull(store.get(0, "tier"));
+        Assert.assertEquals("backend", store.get(1, "tier"));
+        Assert.assertNull(store.get(2, "app"));
+        Assert.assertNull(store.get(2, "missing"));
+        Assert.assertArrayEquals(new int[]{1, 2}, store.select(Selector.parse("!app")));
+        try {
+            store.get(3, "app");
+            Assert.fail("expected rows past the end to be rejected");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    private static Map<String, String> randomLabels(Random random) {
+        Map<String, String> labels = new HashMap<>();
+        String[][] choices = {
+                {"app", "web", "db", "cache"},
+                {"tier", "frontend", "backend"},
+                {"env", "prod", "qa", "dev"},
+                {"priority", "1", "2", "3", "high"}};
+        for (String[] choice : choices) {
+            if (random.nextInt(4) != 0) {
+                labels.put(choice[0], choice[1 + random.nextInt(choice.length - 1)]);
+            }
+        }
+        return labels;
+    }
+}
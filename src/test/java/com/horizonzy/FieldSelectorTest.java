@@ -0,0 +1,172 @@
+package com.horizonzy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FieldSelectorTest {
+
+    public enum Phase {
+        Pending, Running
+    }
+
+    public static class Status {
+
+        private final Phase phase;
+
+        Status(Phase phase) {
+            this.phase = phase;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+    }
+
+    public static class Spec {
+
+        public String nodeName;
+
+        public boolean hostNetwork;
+
+        public boolean isHostNetwork() {
+            return hostNetwork;
+        }
+    }
+
+    // Pod is not public, its public methods are still readable
+    static class Pod {
+
+        private final Spec spec = new Spec();
+
+        private Status status;
+
+        private final Map<String, String> annotations = new HashMap<>();
+
+        public Spec getSpec() {
+            return spec;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public Map<String, String> getAnnotations() {
+            return annotations;
+        }
+    }
+
+    @Test
+    public void testMatches() {
+        Pod pod = new Pod();
+        pod.spec.nodeName = "n1";
+        pod.status = new Status(Phase.Running);
+        pod.annotations.put("owner", "team");
+
+        Assert.assertTrue(FieldSelector.parse("status.phase=Running").matches(pod));
+        Assert.assertTrue(FieldSelector.parse("status.phase==Running,spec.nodeName=n1")
+                .matches(pod));
+        Assert.assertFalse(FieldSelector.parse("status.phase=Running,spec.nodeName!=n1")
+                .matches(pod));
+        Assert.assertTrue(FieldSelector.parse("spec.hostNetwork=false").matches(pod));
+        Assert.assertTrue(FieldSelector.parse("annotations.owner=team").matches(pod));
+        Assert.assertTrue(FieldSelector.parse("annotations.missing=").matches(pod));
+        Assert.assertTrue(FieldSelector.parse("").matches(pod));
+
+        // nulls along the path read as the empty string
+        pod.status = null;
+        Assert.assertTrue(FieldSelector.parse("status.phase=").matches(pod));
+        Assert.assertTrue(FieldSelector.parse("status.phase!=Running").matches(pod));
+        pod.spec.nodeName = null;
+        Assert.assertTrue(FieldSelector.parse("spec.nodeName=").matches(pod));
+    }
+
+    @Test
+    public void testMaps() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("phase", "Pending");
+        Map<String, Object> object = Collections.<String, Object>singletonMap("status", status);
+        Assert.assertTrue(FieldSelector.parse("status.phase=Pending").matches(object));
+        Assert.assertFalse(FieldSelector.parse("status.phase=in").matches(object));
+        status.put("phase", "in");
+        Assert.assertTrue(FieldSelector.parse("status.phase=in").matches(object));
+    }
+
+    @Test
+    public void testMethodsOfUnexportedClasses() {
+        // Arrays$ArrayList and the unmodifiable wrappers are not public, List.isEmpty() is
+        Map<String, Object> object = new HashMap<>();
+        object.put("items", Arrays.asList("a", "b"));
+        object.put("names", Collections.unmodifiableList(new ArrayList<String>()));
+        object.put("labels", Collections.unmodifiableMap(new HashMap<String, String>()));
+        Assert.assertTrue(FieldSelector.parse("items.empty=false").matches(object));
+        Assert.assertTrue(FieldSelector.parse("names.empty=true").matches(object));
+        Assert.assertTrue(FieldSelector.parse("labels.team=").matches(object));
+    }
+
+    @Test
+    public void testOnlyGettersAreCalled() {
+        ArrayDeque<String> queue = new ArrayDeque<>(Arrays.asList("a", "b", "c"));
+        Iterator<String> iterator = Arrays.asList("x", "y").iterator();
+        AtomicInteger counter = new AtomicInteger();
+        Map<String, Object> object = new HashMap<>();
+        object.put("queue", queue);
+        object.put("it", iterator);
+        object.put("counter", counter);
+
+        for (String selector : new String[]{"queue.poll=a", "queue.pop=a", "queue.remove=a",
+                "queue.removeFirst=a", "queue.size=3", "it.next=x", "counter.incrementAndGet=1",
+                "counter.andIncrement=0"}) {
+            try {
+                FieldSelector.parse(selector).matches(object);
+                Assert.fail(selector);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(3, queue.size());
+        Assert.assertEquals("x", iterator.next());
+        Assert.assertEquals(0, counter.get());
+
+        // getters still are
+        Assert.assertTrue(FieldSelector.parse("queue.first=a,queue.empty=false")
+                .matches(object));
+        Assert.assertTrue(FieldSelector.parse("counter.plain=0").matches(object));
+    }
+
+    @Test
+    public void testUnknownField() {
+        try {
+            FieldSelector.parse("spec.unknown=x").matches(new Pod());
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("no field 'unknown' on " + Spec.class.getName(), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParse() {
+        FieldSelector selector = FieldSelector.parse(" status.phase == Running , spec.nodeName!=");
+        Assert.assertEquals("status.phase=Running,spec.nodeName!=", selector.toString());
+        Assert.assertEquals(Arrays.asList("status.phase", "spec.nodeName"), selector.paths());
+        Assert.assertFalse(selector.empty());
+        Assert.assertTrue(FieldSelector.parse("").empty());
+
+        for (String bad : new String[]{"status.phase", "status.phase in (a)", "a=b,",
+                "a>1", "a=b c=d", "=b", ".a=b", "a..b=c", "a.=b", "!a"}) {
+            try {
+                FieldSelector.parse(bad);
+                Assert.fail(bad);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
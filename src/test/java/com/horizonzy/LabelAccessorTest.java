@@ -0,0 +1,82 @@
+package com.horizonzy;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LabelAccessorTest {
+
+    private static final String[] SELECTORS = {
+            "", "app=web", "app==web,tier=backend", "app in (web,db)", "app notin (web)",
+            "app!=db", "tier", "!tier", "priority>2", "priority<3,app", "!app,!tier"};
+
+    @Test
+    public void testAdaptersAgreeWithMapMatching() {
+        Random random = new Random(23);
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> labels = randomLabels(random);
+            TreeMap<String, String> sorted = new TreeMap<>(labels);
+            LabelAccessor[] accessors = {
+                    LabelAccessor.of(labels),
+                    LabelAccessor.sorted(sorted.keySet().toArray(new String[0]),
+                            sorted.values().toArray(new String[0])),
+                    LabelAccessor.of(labels::get)};
+            for (String s : SELECTORS) {
+                InternalSelector selector = Selector.parse(s);
+                boolean want = selector.matches(labels);
+                for (LabelAccessor accessor : accessors) {
+                    Assert.assertEquals(s + " " + labels, want, selector.matches(accessor));
+                }
+                for (Requirement requirement : selector.getRequirementList()) {
+                    Assert.assertEquals(requirement.matches(labels),
+                            requirement.matches(accessors[1]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSortedArrays() {
+        LabelAccessor accessor = LabelAccessor.sorted(new String[]{"app", "tier"},
+                new String[]{"web", "backend"});
+        Assert.assertEquals("web", accessor.get("app"));
+        Assert.assertTrue(accessor.contains("tier"));
+        Assert.assertNull(accessor.get("env"));
+        Assert.assertFalse(accessor.contains("env"));
+        try {
+            LabelAccessor.sorted(new String[]{"app"}, new String[0]);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("keys and values differ in length: 1 != 0", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMapContainsNullValue() {
+        Map<String, String> labels = new HashMap<>();
+        labels.put("app", null);
+        Assert.assertTrue(LabelAccessor.of(labels).contains("app"));
+        Assert.assertFalse(LabelAccessor.of(labels::get).contains("app"));
+        Assert.assertEquals(Arrays.asList(true, false), Arrays.asList(
+                Selector.parse("app").matches(LabelAccessor.of(labels)),
+                Selector.parse("!app").matches(LabelAccessor.of(labels))));
+    }
+
+    private static Map<String, String> randomLabels(Random random) {
+        Map<String, String> labels = new HashMap<>();
+        String[][] choices = {
+                {"app", "web", "db", "cache"},
+                {"tier", "frontend", "backend"},
+                {"priority", "1", "2", "3", "high"}};
+        for (String[] choice : choices) {
+            if (random.nextInt(4) != 0) {
+                labels.put(choice[0], choice[1 + random.nextInt(choice.length - 1)]);
+            }
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,123 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LabelIndexTest {
+
+    private static final List<String> SELECTORS = Arrays.asList(
+            "", "app=web", "app==web,tier=backend", "app in (web,db)", "app notin (web)",
+            "app!=db", "tier", "!tier", "app,!tier", "tier notin (backend),env in (prod,qa)",
+            "app=web,env!=prod", "priority>2", "priority<3,app", "!app,!tier",
+            "env in (prod),priority>0,tier!=frontend", "missing=x", "!missing");
+
+    @Test
+    public void testSelectMatchesFullScan() {
+        Random random = new Random(42);
+        LabelIndex<Integer> index = new LabelIndex<>();
+        Map<Integer, Map<String, String>> expected = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            Map<String, String> labels = randomLabels(random);
+            index.put(i, labels);
+            expected.put(i, labels);
+        }
+        // update and remove a share of the objects
+        for (int i = 0; i < 500; i += 3) {
+            Map<String, String> labels = randomLabels(random);
+            index.put(i, labels);
+            expected.put(i, labels);
+        }
+        for (int i = 0; i < 500; i += 7) {
+            Assert.assertTrue(index.remove(i));
+            expected.remove(i);
+        }
+        Assert.assertFalse(index.remove(0));
+        Assert.assertEquals(expected.size(), index.size());
+
+        for (String selector : SELECTORS) {
+            InternalSelector internalSelector = Selector.parse(selector);
+            List<Integer> want = new ArrayList<>();
+            for (Map.Entry<Integer, Map<String, String>> entry : expected.entrySet()) {
+                if (internalSelector.matches(entry.getValue())) {
+                    want.add(entry.getKey());
+                }
+            }
+            List<Integer> got = index.select(internalSelector);
+            Collections.sort(want);
+            Collections.sort(got);
+            Assert.assertEquals(selector, want, got);
+        }
+    }
+
+    @Test
+    public void testUpdateMovesPostings() {
+        LabelIndex<String> index = new LabelIndex<>();
+        Map<String, String> labels = new HashMap<>();
+        labels.put("app", "web");
+        labels.put("tier", "frontend");
+        index.put("pod-1", labels);
+
+        Map<String, String> updated = new HashMap<>();
+        updated.put("app", "db");
+        index.put("pod-1", updated);
+
+        Assert.assertEquals(Collections.emptyList(), index.select(Selector.parse("app=web")));
+        Assert.assertEquals(Collections.emptyList(), index.select(Selector.parse("tier")));
+        Assert.assertEquals(Collections.singletonList("pod-1"),
+                index.select(Selector.parse("app=db,!tier")));
+        Assert.assertEquals(updated, index.labels("pod-1"));
+    }
+
+    @Test
+    public void testNullLabelsAreRejected() {
+        LabelIndex<String> index = new LabelIndex<>();
+        index.put("pod-1", Collections.singletonMap("app", "web"));
+
+        Map<String, String> nullValue = new HashMap<>();
+        nullValue.put("app", null);
+        Map<String, String> nullKey = new HashMap<>();
+        nullKey.put(null, "web");
+        for (Map<String, String> labels : Arrays.asList(nullValue, nullKey)) {
+            try {
+                index.put("pod-1", labels);
+                Assert.fail(labels.toString());
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        try {
+            index.put("pod-2", nullValue);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("value of label 'app' is null: pod-2", e.getMessage());
+        }
+
+        // the index is left as it was
+        Assert.assertEquals(1, index.size());
+        Assert.assertEquals(Collections.singletonMap("app", "web"), index.labels("pod-1"));
+        Assert.assertEquals(Collections.singletonList("pod-1"),
+                index.select(Selector.parse("app=web")));
+    }
+
+    private static Map<String, String> randomLabels(Random random) {
+        Map<String, String> labels = new HashMap<>();
+        String[][] choices = {
+                {"app", "web", "db", "cache"},
+                {"tier", "frontend", "backend"},
+                {"env", "prod", "qa", "dev"},
+                {"priority", "1", "2", "3", "high"}};
+        for (String[] choice : choices) {
+            if (random.nextInt(4) != 0) {
+                labels.put(choice[0], choice[1 + random.nextInt(choice.length - 1)]);
+            }
+        }
+        return labels;
+    }
+}
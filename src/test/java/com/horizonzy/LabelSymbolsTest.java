@@ -0,0 +1,143 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LabelSymbolsTest {
+
+    @Test
+    public void testCanonicalInstances() {
+        LabelSymbols symbols = new LabelSymbols(16);
+        String key = symbols.canonicalKey(new String("example.com/team"));
+        Assert.assertSame(key, symbols.canonicalKey(new String("example.com/team")));
+
+        String value = symbols.canonicalValue(new String("backend"));
+        Assert.assertSame(value, symbols.canonicalValue(new String("backend")));
+        // a string valid as both key and value is a single symbol
+        Assert.assertSame(value, symbols.canonicalKey(new String("backend")));
+
+        Assert.assertEquals(0, symbols.id("example.com/team"));
+        Assert.assertEquals(1, symbols.id("backend"));
+        Assert.assertEquals(-1, symbols.id("missing"));
+        Assert.assertEquals(2, symbols.size());
+    }
+
+    @Test
+    public void testInvalidStringsAreNotInterned() {
+        LabelSymbols symbols = new LabelSymbols(16);
+        for (String invalid : new String[]{"-a", "a/b/c", "/a"}) {
+            try {
+                symbols.canonicalKey(invalid);
+                Assert.fail("expected '" + invalid + "' to be rejected");
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals(-1, symbols.id(invalid));
+            }
+        }
+        // valid as a key, but not as a value
+        symbols.canonicalKey("example.com/team");
+        try {
+            symbols.canonicalValue("example.com/team");
+            Assert.fail("expected a value containing '/' to be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(0, symbols.id("example.com/team"));
+        }
+        Assert.assertEquals(1, symbols.size());
+    }
+
+    @Test
+    public void testCapacityBoundsRetention() {
+        LabelSymbols symbols = new LabelSymbols(8);
+        String hot = symbols.canonicalValue(new String("hot"));
+        int hotId = symbols.id("hot");
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(hot, symbols.canonicalValue(new String("hot")));
+            Assert.assertEquals("v" + i, symbols.canonicalValue("v" + i));
+            Assert.assertTrue(symbols.size() <= 8);
+        }
+        // the string in steady use survives every sweep, one-off strings are evicted for new ones
+        Assert.assertEquals(hotId, symbols.id("hot"));
+        Assert.assertNotEquals(-1, symbols.id("v99"));
+        Assert.assertEquals(-1, symbols.id("v0"));
+        try {
+            symbols.canonicalValue("-v");
+            Assert.fail("expected strings to be validated when the table is full");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(-1, symbols.id("-v"));
+        }
+    }
+
+    @Test
+    public void testConcurrentInterning() throws Exception {
+        LabelSymbols symbols = new LabelSymbols(1024);
+        Map<String, String> canonical = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        String value = symbols.canonicalValue(new String("v" + (i % 100)));
+                        Assert.assertSame(value, canonical.computeIfAbsent(value, v -> v));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(100, symbols.size());
+        boolean[] seen = new boolean[100];
+        for (int i = 0; i < 100; i++) {
+            int id = symbols.id("v" + i);
+            Assert.assertFalse(seen[id]);
+            seen[id] = true;
+        }
+    }
+
+    @Test
+    public void testConcurrentEviction() throws Exception {
+        LabelSymbols symbols = new LabelSymbols(32);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        String value = "v" + ((i * 31 + seed) % 200);
+                        Assert.assertEquals(value, symbols.canonicalValue(value));
+                        Assert.assertTrue(symbols.size() <= 32);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertTrue(symbols.size() <= 32);
+    }
+
+    @Test
+    public void testParsedSelectorsShareStrings() {
+        InternalSelector first = Selector.parse("tier in (backend,frontend),app=web");
+        InternalSelector second = Selector.parse("app = web , tier notin (frontend)");
+        Requirement app = second.getRequirementList().get(0);
+        Requirement tier = first.getRequirementList().get(1);
+        Assert.assertSame(first.getRequirementList().get(0).getKey(), app.getKey());
+        Assert.assertSame(first.getRequirementList().get(0).getStrValues().get(0),
+                app.getStrValues().get(0));
+        Assert.assertSame(tier.getStrValues().get(1),
+                second.getRequirementList().get(1).getStrValues().get(0));
+    }
+}
@@ -0,0 +1,101 @@
+package com.horizonzy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedLabelIndexTest {
+
+    private static final List<String> SELECTORS = Arrays.asList(
+            "", "app=web", "app==web,tier=backend", "app in (web,db)", "app notin (web)",
+            "app!=db", "tier", "!tier", "app,!tier", "tier notin (backend),env in (prod,qa)",
+            "app=web,env!=prod", "priority>2", "priority<3,app", "!app,!tier",
+            "env in (prod),priority>0,tier!=frontend", "missing=x", "!missing", "app=missing");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSelectMatchesFullScan() throws IOException {
+        Random random = new Random(17);
+        Map<String, Map<String, String>> objects = new LinkedHashMap<>();
+        for (int i = 0; i < 500; i++) {
+            objects.put("pod-" + i, randomLabels(random));
+        }
+        File file = folder.newFile("labels.idx");
+        MappedLabelIndex.write(file.toPath(), objects);
+        MappedLabelIndex index = MappedLabelIndex.open(file.toPath());
+        Assert.assertEquals(objects.size(), index.size());
+
+        List<String> names = new ArrayList<>(objects.keySet());
+        for (int i = 0; i < names.size(); i++) {
+            Assert.assertEquals(names.get(i), index.name(i));
+        }
+        for (String selector : SELECTORS) {
+            InternalSelector internalSelector = Selector.parse(selector);
+            List<String> want = new ArrayList<>();
+            for (Map.Entry<String, Map<String, String>> object : objects.entrySet()) {
+                if (internalSelector.matches(object.getValue())) {
+                    want.add(object.getKey());
+                }
+            }
+            List<String> got = new ArrayList<>();
+            for (int ordinal : index.select(internalSelector)) {
+                got.add(index.name(ordinal));
+            }
+            Assert.assertEquals(selector, want, got);
+        }
+    }
+
+    @Test
+    public void testEmptyIndexAndRewrite() throws IOException {
+        File file = folder.newFile("empty.idx");
+        MappedLabelIndex.write(file.toPath(), Collections.<String, Map<String, String>>emptyMap());
+        MappedLabelIndex index = MappedLabelIndex.open(file.toPath());
+        Assert.assertEquals(0, index.size());
+        Assert.assertEquals(0, index.select(Selector.parse("!app")).length);
+
+        Map<String, Map<String, String>> objects = new LinkedHashMap<>();
+        objects.put("a", Collections.singletonMap("app", "web"));
+        objects.put("b", null);
+        MappedLabelIndex.write(file.toPath(), objects);
+        index = MappedLabelIndex.open(file.toPath());
+        Assert.assertArrayEquals(new int[]{0}, index.select(Selector.parse("app=web")));
+        Assert.assertArrayEquals(new int[]{1}, index.select(Selector.parse("!app")));
+        Assert.assertArrayEquals(new int[]{0, 1}, index.select(Selector.everyThing()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other.idx");
+        Files.write(file.toPath(), new byte[64]);
+        MappedLabelIndex.open(file.toPath());
+    }
+
+    private static Map<String, String> randomLabels(Random random) {
+        Map<String, String> labels = new HashMap<>();
+        String[][] choices = {
+                {"app", "web", "db", "cache"},
+                {"tier", "frontend", "backend"},
+                {"env", "prod", "qa", "dev"},
+                {"priority", "1", "2", "3", "high"}};
+        for (String[] choice : choices) {
+            if (random.nextInt(4) != 0) {
+                labels.put(choice[0], choice[1 + random.nextInt(choice.length - 1)]);
+            }
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,170 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SelectorAnalysisTest {
+
+    private static final List<String> VALUES = Arrays.asList(null, "a", "b", "c", "0", "1", "2",
+            "3", "4", "5", "01", "02", "03", "001", "002", "003", "zz");
+
+    @Test
+    public void testImplies() {
+        String[][] implied = {
+                {"x=a", "x"},
+                {"x=a", "x in (a,b)"},
+                {"x=a", "x!=b"},
+                {"x in (a,b)", "x notin (c)"},
+                {"!x", "x!=a"},
+                {"!x", "x notin (a,b)"},
+                {"x>5", "x>3"},
+                {"x>5", "x"},
+                {"x=a,y=b", "y"},
+                {"x=a,x=b", "y=c"},
+                {"x=a", ""},
+        };
+        for (String[] pair : implied) {
+            Assert.assertTrue(pair[0] + " => " + pair[1],
+                    Selector.parse(pair[0]).implies(Selector.parse(pair[1])));
+        }
+        String[][] notImplied = {
+                {"x", "x=a"},
+                {"x!=a", "x"},
+                {"x in (a,b)", "x=a"},
+                {"x>3", "x>5"},
+                {"x>5", "x notin (6,7)"},
+                {"x>5,x<7", "x=6"},
+                // '0006' is 6 as well
+                {"x>5,x<7", "x in (6,06,006)"},
+                {"x=a", "y"},
+                {"", "x"},
+                {"x notin (a)", "!x"},
+        };
+        for (String[] pair : notImplied) {
+            Assert.assertFalse(pair[0] + " => " + pair[1],
+                    Selector.parse(pair[0]).implies(Selector.parse(pair[1])));
+        }
+    }
+
+    @Test
+    public void testIntersects() {
+        String[][] overlapping = {
+                {"app=web", "tier=backend"},
+                {"x in (a,b)", "x in (b,c)"},
+                {"x>1", "x<3"},
+                {"x>1,x<3", "x notin (2)"},
+                {"x!=a", "!x"},
+                {"", "x=a"},
+        };
+        for (String[] pair : overlapping) {
+            InternalSelector a = Selector.parse(pair[0]);
+            InternalSelector b = Selector.parse(pair[1]);
+            Assert.assertTrue(pair[0] + " & " + pair[1], a.intersects(b));
+            Assert.assertTrue(pair[0] + " & " + pair[1], b.intersects(a));
+        }
+        String[][] disjoint = {
+                {"app=web", "app=db"},
+                {"x in (a,b)", "x notin (a,b)"},
+                {"x>2", "x<3"},
+                {"x", "!x"},
+                {"x>1", "x=a"},
+                {"x=9223372036854775807", "x>9223372036854775806,x!=9223372036854775807"},
+        };
+        for (String[] pair : disjoint) {
+            InternalSelector a = Selector.parse(pair[0]);
+            InternalSelector b = Selector.parse(pair[1]);
+            Assert.assertFalse(pair[0] + " & " + pair[1], a.intersects(b));
+            Assert.assertFalse(pair[0] + " & " + pair[1], b.intersects(a));
+        }
+    }
+
+    @Test
+    public void testIntersection() {
+        InternalSelector a = Selector.parse("x in (a,b),y");
+        InternalSelector b = Selector.parse("y,x!=a");
+        InternalSelector intersection = a.intersection(b);
+        Assert.assertEquals("x in (a,b),x!=a,y", intersection.toString());
+        Assert.assertTrue(intersection.implies(a));
+        Assert.assertTrue(intersection.implies(b));
+    }
+
+    // testMatchesBruteForce compares the analysis with an enumeration of label sets over two keys
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(5);
+        List<Map<String, String>> universe = new ArrayList<>();
+        for (String x : VALUES) {
+            for (String y : VALUES) {
+                Map<String, String> labels = new HashMap<>();
+                if (x != null) {
+                    labels.put("x", x);
+                }
+                if (y != null) {
+                    labels.put("y", y);
+                }
+                universe.add(labels);
+            }
+        }
+        for (int i = 0; i < 3000; i++) {
+            InternalSelector a = Selector.parse(randomSelector(random));
+            InternalSelector b = Selector.parse(randomSelector(random));
+            boolean intersects = false;
+            boolean implies = true;
+            for (Map<String, String> labels : universe) {
+                boolean matchesA = a.matches(labels);
+                boolean matchesB = b.matches(labels);
+                intersects |= matchesA && matchesB;
+                implies &= !matchesA || matchesB;
+            }
+            Assert.assertEquals(a + " & " + b, intersects, a.intersects(b));
+            Assert.assertEquals(a + " => " + b, implies, a.implies(b));
+            Assert.assertEquals(a + " & " + b, intersects, a.intersection(b).intersects(Selector.everyThing()));
+        }
+    }
+
+    private static String randomSelector(Random random) {
+        String[] literals = {"a", "b", "1", "2", "3"};
+        List<String> requirements = new ArrayList<>();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            String key = random.nextBoolean() ? "x" : "y";
+            String value = literals[random.nextInt(literals.length)];
+            String other = literals[random.nextInt(literals.length)];
+            switch (random.nextInt(9)) {
+                case 0:
+                    requirements.add(key + "=" + value);
+                    break;
+                case 1:
+                    requirements.add(key + "!=" + value);
+                    break;
+                case 2:
+                    requirements.add(key + " in (" + value + "," + other + ")");
+                    break;
+                case 3:
+                    requirements.add(key + " notin (" + value + "," + other + ")");
+                    break;
+                case 4:
+                    requirements.add(key);
+                    break;
+                case 5:
+                    requirements.add("!" + key);
+                    break;
+                case 6:
+                    requirements.add(key + ">" + random.nextInt(4));
+                    break;
+                case 7:
+                    requirements.add(key + "<" + random.nextInt(5));
+                    break;
+                default:
+                    requirements.add(key + "==" + value);
+            }
+        }
+        return String.join(",", requirements);
+    }
+}
@@ -0,0 +1,116 @@
+package com.horizonzy;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SelectorBuilderTest {
+
+    @Test
+    public void testBuildAgreesWithParse() {
+        for (SelectorBuilder builder : Arrays.asList(new SelectorBuilder(),
+                SelectorBuilder.trusted())) {
+            InternalSelector selector = builder
+                    .in("tier", "db", "backend", "db")
+                    .eq("app", "web")
+                    .notEq("env", "prod")
+                    .notIn("zone", Arrays.asList("b", "a"))
+                    .exists("owner")
+                    .doesNotExist("debug")
+                    .gt("priority", 2)
+                    .lt("replicas", 10)
+                    .build();
+            InternalSelector parsed = Selector.parse("tier in (backend,db),app=web,env!=prod,"
+                    + "zone notin (a,b),owner,!debug,priority>2,replicas<10");
+            Assert.assertEquals(parsed.toString(), selector.toString());
+            Assert.assertEquals(parsed, selector);
+            Assert.assertEquals(parsed.hashCode(), selector.hashCode());
+
+            Map<String, String> labels = new HashMap<>();
+            labels.put("app", "web");
+            labels.put("tier", "db");
+            labels.put("owner", "team");
+            labels.put("priority", "3");
+            labels.put("replicas", "1");
+            Assert.assertTrue(selector.matches(labels));
+            labels.put("debug", "true");
+            Assert.assertFalse(selector.matches(labels));
+        }
+    }
+
+    @Test
+    public void testMatchLabels() {
+        Map<String, String> labels = new LinkedHashMap<>();
+        labels.put("b", "2");
+        labels.put("a", "1");
+        InternalSelector selector = SelectorBuilder.trusted().matchLabels(labels).build();
+        Assert.assertEquals(Selector.selectorFromValidatedSet(labels), selector);
+        Assert.assertEquals("a=1,b=2", selector.toString());
+        Assert.assertTrue(new SelectorBuilder().build().empty());
+    }
+
+    @Test
+    public void testBuilderIsReusable() {
+        SelectorBuilder builder = new SelectorBuilder().eq("app", "web");
+        InternalSelector first = builder.build();
+        InternalSelector second = builder.exists("tier").build();
+        Assert.assertEquals("app=web", first.toString());
+        Assert.assertEquals("app=web,tier", second.toString());
+        Assert.assertNotSame(first, builder.build());
+    }
+
+    @Test
+    public void testValidation() {
+        SelectorBuilder builder = new SelectorBuilder();
+        Assert.assertFalse(builder.isTrusted());
+        assertInvalid(SelectorException.Kind.INVALID_KEY, () -> builder.eq("-app", "web"));
+        assertInvalid(SelectorException.Kind.INVALID_VALUE, () -> builder.eq("app", "web!"));
+        assertInvalid(SelectorException.Kind.INVALID_REQUIREMENT, () -> builder.in("app"));
+        assertInvalid(SelectorException.Kind.INVALID_REQUIREMENT,
+                () -> builder.notIn("app", Collections.<String>emptyList()));
+        Assert.assertTrue(builder.build().empty());
+
+        // trusted builders skip key and value validation, but not the shape of requirements
+        SelectorBuilder trusted = SelectorBuilder.trusted();
+        Assert.assertTrue(trusted.isTrusted());
+        InternalSelector selector = trusted.eq("-app", "web!").build();
+        Assert.assertTrue(selector.matches(Collections.singletonMap("-app", "web!")));
+        assertInvalid(SelectorException.Kind.INVALID_REQUIREMENT, () -> trusted.in("app"));
+    }
+
+    @Test
+    public void testNullsAreRejected() {
+        for (SelectorBuilder builder : new SelectorBuilder[]{new SelectorBuilder(),
+                SelectorBuilder.trusted()}) {
+            assertInvalid(SelectorException.Kind.INVALID_KEY, () -> builder.eq(null, "web"));
+            assertInvalid(SelectorException.Kind.INVALID_KEY, () -> builder.exists(null));
+            assertInvalid(SelectorException.Kind.INVALID_VALUE, () -> builder.eq("app", null));
+            assertInvalid(SelectorException.Kind.INVALID_VALUE, () -> builder.notEq("app", null));
+            assertInvalid(SelectorException.Kind.INVALID_VALUE,
+                    () -> builder.in("app", "web", null));
+            assertInvalid(SelectorException.Kind.INVALID_VALUE,
+                    () -> builder.notIn("app", Arrays.asList("web", null)));
+            assertInvalid(SelectorException.Kind.INVALID_REQUIREMENT,
+                    () -> builder.in("app", (String[]) null));
+            assertInvalid(SelectorException.Kind.INVALID_REQUIREMENT,
+                    () -> builder.in("app", (Collection<String>) null));
+            assertInvalid(SelectorException.Kind.INVALID_VALUE,
+                    () -> builder.matchLabels(Collections.singletonMap("app", null)));
+            Assert.assertTrue(builder.build().empty());
+        }
+    }
+
+    private static void assertInvalid(SelectorException.Kind kind, Runnable runnable) {
+        try {
+            runnable.run();
+            Assert.fail("expected " + kind);
+        } catch (SelectorException e) {
+            Assert.assertEquals(e.getMessage(), kind, e.getKind());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SelectorCacheTest {
+
+    @Test
+    public void testHitAndMiss() {
+        SelectorCache cache = new SelectorCache(16);
+        InternalSelector first = cache.parse("x=a,y in (b,c)");
+        InternalSelector second = cache.parse("x=a,y in (b,c)");
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, cache.hitCount());
+        Assert.assertEquals(1, cache.missCount());
+        Assert.assertEquals(1, cache.size());
+
+        Map<String, String> label = new HashMap<>();
+        label.put("x", "a");
+        label.put("y", "c");
+        Assert.assertTrue(first.matches(label));
+        Assert.assertEquals(Selector.parse("x=a,y in (b,c)").toString(), first.toString());
+    }
+
+    @Test
+    public void testCachedSelectorIsFrozen() {
+        SelectorCache cache = new SelectorCache(16);
+        InternalSelector selector = cache.parse("x=a");
+        Assert.assertTrue(selector.isFrozen());
+
+        boolean isException = false;
+        try {
+            selector.addRequire(
+                    Requirement.newRequirement("y", Operator.Equals, Collections.singletonList("b")));
+        } catch (UnsupportedOperationException e) {
+            isException = true;
+        }
+        Assert.assertTrue(isException);
+
+        isException = false;
+        try {
+            selector.getRequirementList().clear();
+        } catch (UnsupportedOperationException e) {
+            isException = true;
+        }
+        Assert.assertTrue(isException);
+    }
+
+    @Test
+    public void testEviction() {
+        SelectorCache cache = new SelectorCache(4);
+        for (int i = 0; i < 100; i++) {
+            cache.parse("x=a" + i);
+        }
+        Assert.assertTrue(cache.size() <= 4);
+        Assert.assertEquals(100, cache.missCount());
+        Assert.assertEquals(100 - cache.size(), cache.evictionCount());
+    }
+
+    @Test
+    public void testSizeIsExact() {
+        for (int maximumSize : new int[]{1, 3, 17, 33, 100, 1000}) {
+            SelectorCache cache = new SelectorCache(maximumSize);
+            for (int i = 0; i < maximumSize * 50; i++) {
+                cache.parse("x=a" + i);
+                Assert.assertTrue(cache.size() <= maximumSize);
+            }
+            // every segment is full by now, and together they hold exactly maximumSize
+            Assert.assertEquals(maximumSize, cache.size());
+        }
+    }
+
+    @Test
+    public void testParseErrorIsNotCached() {
+        SelectorCache cache = new SelectorCache(4);
+        for (int i = 0; i < 2; i++) {
+            boolean isException = false;
+            try {
+                cache.parse("x=a||y=b");
+            } catch (IllegalArgumentException e) {
+                isException = true;
+            }
+            Assert.assertTrue(isException);
+        }
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    public void testConcurrentParse() throws Exception {
+        final SelectorCache cache = new SelectorCache(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<InternalSelector>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final String selector = "x in (a,b),y!=" + (i % 32);
+                futures.add(executor.submit(new Callable<InternalSelector>() {
+                    @Override
+                    public InternalSelector call() {
+                        return cache.parse(selector);
+                    }
+                }));
+            }
+            for (Future<InternalSelector> future : futures) {
+                Assert.assertTrue(future.get().isFrozen());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1000, cache.hitCount() + cache.missCount());
+        Assert.assertEquals(32, cache.size());
+        Assert.assertEquals(0, cache.evictionCount());
+    }
+}
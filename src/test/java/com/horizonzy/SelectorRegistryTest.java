@@ -0,0 +1,181 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SelectorRegistryTest {
+
+    private static final List<String> SELECTORS = Arrays.asList(
+            "", "app=web", "app==web,tier=backend", "app in (web,db)", "app notin (web)",
+            "app!=db", "tier", "!tier", "app,!tier", "tier notin (backend),env in (prod,qa)",
+            "app=web,env!=prod", "priority>2", "priority<3,app", "!app,!tier",
+            "env in (prod),priority>0,tier!=frontend", "missing=x", "!missing");
+
+    @Test
+    public void testMatchingAgreesWithFullScan() {
+        SelectorRegistry<String> registry = new SelectorRegistry<>();
+        for (String selector : SELECTORS) {
+            registry.register(Selector.parse(selector), selector);
+        }
+        Assert.assertEquals(SELECTORS.size(), registry.size());
+        // "", "app notin (web)", "app!=db", "!tier", "!app,!tier", "!missing"
+        Assert.assertEquals(6, registry.residualSize());
+
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            Map<String, String> labels = randomLabels(random);
+            List<String> want = new ArrayList<>();
+            for (String selector : SELECTORS) {
+                if (Selector.parse(selector).matches(labels)) {
+                    want.add(selector);
+                }
+            }
+            List<String> got = registry.matching(labels);
+            Collections.sort(want);
+            Collections.sort(got);
+            Assert.assertEquals(labels.toString(), want, got);
+        }
+    }
+
+    @Test
+    public void testRegisterReplacesAndUnregisterRemoves() {
+        SelectorRegistry<String> registry = new SelectorRegistry<>();
+        registry.register(Selector.parse("app=web"), "service");
+
+        Map<String, String> labels = new HashMap<>();
+        labels.put("app", "db");
+        Assert.assertEquals(Collections.emptyList(), registry.matching(labels));
+
+        registry.register(Selector.parse("app in (db,cache)"), "service");
+        Assert.assertEquals(1, registry.size());
+        Assert.assertEquals(Collections.singletonList("service"), registry.matching(labels));
+
+        Assert.assertTrue(registry.unregister("service"));
+        Assert.assertFalse(registry.unregister("service"));
+        Assert.assertEquals(Collections.emptyList(), registry.matching(labels));
+        Assert.assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testDeltaAgreesWithFullEvaluation() {
+        SelectorRegistry<String> registry = new SelectorRegistry<>();
+        for (String selector : SELECTORS) {
+            registry.register(Selector.parse(selector), selector);
+        }
+        Random random = new Random(13);
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> oldLabels = randomLabels(random);
+            Map<String, String> newLabels = new HashMap<>(oldLabels);
+            // mostly single-key updates, sometimes a whole new label set
+            if (random.nextInt(5) == 0) {
+                newLabels = randomLabels(random);
+            } else {
+                Map<String, String> replacement = randomLabels(random);
+                String key = new String[]{"app", "tier", "env", "priority"}[random.nextInt(4)];
+                if (replacement.containsKey(key)) {
+                    newLabels.put(key, replacement.get(key));
+                } else {
+                    newLabels.remove(key);
+                }
+            }
+
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (String selector : SELECTORS) {
+                InternalSelector internalSelector = Selector.parse(selector);
+                boolean before = internalSelector.matches(oldLabels);
+                boolean after = internalSelector.matches(newLabels);
+                if (!before && after) {
+                    added.add(selector);
+                } else if (before && !after) {
+                    removed.add(selector);
+                }
+            }
+            SelectorRegistry.Delta<String> delta = registry.delta(oldLabels, newLabels);
+            List<String> gotAdded = new ArrayList<>(delta.getAdded());
+            List<String> gotRemoved = new ArrayList<>(delta.getRemoved());
+            Collections.sort(added);
+            Collections.sort(removed);
+            Collections.sort(gotAdded);
+            Collections.sort(gotRemoved);
+            String message = oldLabels + " -> " + newLabels;
+            Assert.assertEquals(message, added, gotAdded);
+            Assert.assertEquals(message, removed, gotRemoved);
+        }
+    }
+
+    @Test
+    public void testDeltaOfAddedAndRemovedLabels() {
+        SelectorRegistry<String> registry = new SelectorRegistry<>();
+        for (String selector : new String[]{"app", "!app", "app=web", "app!=web", "tier"}) {
+            registry.register(Selector.parse(selector), selector);
+        }
+        Map<String, String> none = Collections.emptyMap();
+        Map<String, String> web = Collections.singletonMap("app", "web");
+
+        SelectorRegistry.Delta<String> added = registry.delta(none, web);
+        Assert.assertEquals(new HashSet<>(Arrays.asList("app", "app=web")),
+                new HashSet<>(added.getAdded()));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("!app", "app!=web")),
+                new HashSet<>(added.getRemoved()));
+
+        SelectorRegistry.Delta<String> removed = registry.delta(web, none);
+        Assert.assertEquals(new HashSet<>(added.getRemoved()),
+                new HashSet<>(removed.getAdded()));
+        Assert.assertEquals(new HashSet<>(added.getAdded()),
+                new HashSet<>(removed.getRemoved()));
+
+        // a key mapped to null is present, it only has no value
+        Map<String, String> nullValue = new HashMap<>();
+        nullValue.put("app", null);
+        SelectorRegistry.Delta<String> present = registry.delta(none, nullValue);
+        Assert.assertEquals(Collections.singletonList("app"), present.getAdded());
+        Assert.assertEquals(Collections.singletonList("!app"), present.getRemoved());
+        SelectorRegistry.Delta<String> valued = registry.delta(nullValue, web);
+        Assert.assertEquals(Collections.singletonList("app=web"), valued.getAdded());
+        Assert.assertEquals(Collections.singletonList("app!=web"), valued.getRemoved());
+        Assert.assertTrue(registry.delta(nullValue, nullValue).isEmpty());
+    }
+
+    @Test
+    public void testAffectedBy() {
+        SelectorRegistry<String> registry = new SelectorRegistry<>();
+        for (String selector : SELECTORS) {
+            registry.register(Selector.parse(selector), selector);
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("priority>2", "priority<3,app",
+                "env in (prod),priority>0,tier!=frontend")),
+                registry.affectedBy(Collections.singleton("priority")));
+        Assert.assertEquals(Collections.emptySet(),
+                registry.affectedBy(Collections.singleton("unused")));
+
+        registry.unregister("priority>2");
+        Assert.assertFalse(registry.affectedBy(Collections.singleton("priority"))
+                .contains("priority>2"));
+        Map<String, String> labels = Collections.singletonMap("app", "web");
+        Assert.assertTrue(registry.delta(labels, labels).isEmpty());
+    }
+
+    private static Map<String, String> randomLabels(Random random) {
+        Map<String, String> labels = new HashMap<>();
+        String[][] choices = {
+                {"app", "web", "db", "cache"},
+                {"tier", "frontend", "backend"},
+                {"env", "prod", "qa", "dev"},
+                {"priority", "1", "2", "3", "high"}};
+        for (String[] choice : choices) {
+            if (random.nextInt(4) != 0) {
+                labels.put(choice[0], choice[1 + random.nextInt(choice.length - 1)]);
+            }
+        }
+        return labels;
+    }
+}
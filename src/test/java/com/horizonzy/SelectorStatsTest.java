@@ -0,0 +1,86 @@
+package com.horizonzy;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SelectorStatsTest {
+
+    @After
+    public void unregister() {
+        Selector.setMetrics(null);
+    }
+
+    @Test
+    public void testParseEvents() {
+        SelectorStats stats = new SelectorStats();
+        Selector.setMetrics(stats);
+
+        Selector.parse("app=web,tier in (backend)");
+        Selector.parse("");
+        expectFailure("app in (", SelectorException.Kind.SYNTAX);
+        expectFailure("-app=web", SelectorException.Kind.INVALID_KEY);
+        expectFailure("app=-web", SelectorException.Kind.INVALID_VALUE);
+        expectFailure("app>x", SelectorException.Kind.INVALID_REQUIREMENT);
+
+        Assert.assertEquals(2, stats.parseCount());
+        long histogramTotal = 0;
+        for (long count : stats.parseLatencyHistogram()) {
+            histogramTotal += count;
+        }
+        Assert.assertEquals(2, histogramTotal);
+        Assert.assertTrue(stats.parseNanos() > 0);
+        for (SelectorException.Kind kind : SelectorException.Kind.values()) {
+            Assert.assertEquals(kind.name(), 1, stats.parseFailures(kind));
+        }
+        Assert.assertEquals(1, stats.validationFailures(SelectorException.Kind.INVALID_KEY));
+        Assert.assertEquals(1, stats.validationFailures(SelectorException.Kind.INVALID_VALUE));
+    }
+
+    @Test
+    public void testMatchEvents() {
+        // selectors parsed before a listener is registered are not instrumented
+        InternalSelector plain = Selector.parse("app=web,tier notin (frontend),priority>1");
+        SelectorStats stats = new SelectorStats();
+        Selector.setMetrics(stats);
+        InternalSelector selector = Selector.parse("app=web,tier notin (frontend),priority>1");
+
+        Map<String, String> labels = new HashMap<>();
+        labels.put("app", "web");
+        labels.put("tier", "backend");
+        labels.put("priority", "2");
+        Assert.assertTrue(selector.matches(labels));
+        labels.put("priority", "0");
+        Assert.assertFalse(selector.matches(labels));
+        labels.put("app", "db");
+        Assert.assertFalse(selector.matches(labels));
+
+        Assert.assertEquals(1, stats.selectorMatches());
+        Assert.assertEquals(2, stats.selectorRejections());
+        // requirements are evaluated in key order and stop at the first rejection
+        Assert.assertEquals(3, stats.evaluations(Operator.EQUALS));
+        Assert.assertEquals(1, stats.rejections(Operator.EQUALS));
+        Assert.assertEquals(2, stats.evaluations(Operator.GREATER_THAN));
+        Assert.assertEquals(1, stats.rejections(Operator.GREATER_THAN));
+        Assert.assertEquals(1, stats.evaluations(Operator.NOT_IN));
+        Assert.assertEquals(0, stats.rejections(Operator.NOT_IN));
+
+        Assert.assertFalse(plain.matches(labels));
+        Assert.assertEquals(2, stats.selectorRejections());
+
+        Selector.setMetrics(null);
+        Assert.assertFalse(selector.matches(labels));
+        Assert.assertEquals(2, stats.selectorRejections());
+    }
+
+    private static void expectFailure(String selector, SelectorException.Kind kind) {
+        try {
+            Selector.parse(selector);
+            Assert.fail("expected '" + selector + "' to fail");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(selector, kind, SelectorException.kindOf(e));
+        }
+    }
+}
@@ -4,10 +4,15 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -188,12 +193,13 @@ public class SelectorTest {
     private void expectMatch(String selector, Map<String, String> labels) {
         InternalSelector internalSelector = Selector.parse(selector);
         Assert.assertTrue(internalSelector.matches(labels));
+        Assert.assertTrue(internalSelector.compile().test(labels));
     }
 
     private void expectNoMatch(String selector, Map<String, String> labels) {
         InternalSelector internalSelector = Selector.parse(selector);
         Assert.assertFalse(internalSelector.matches(labels));
-
+        Assert.assertFalse(internalSelector.compile().test(labels));
     }
 
     @Test
@@ -228,7 +234,26 @@ public class SelectorTest {
     }
 
     private void expectMatchDirect(Map<String, String> selectorMap, Map<String, String> label) {
-        Assert.assertTrue(Selector.selectorFromValidatedSet(selectorMap).matches(label));
+        InternalSelector internalSelector = Selector.selectorFromValidatedSet(selectorMap);
+        Assert.assertTrue(internalSelector.matches(label));
+        Assert.assertTrue(internalSelector.compile().test(label));
+    }
+
+    @Test
+    public void testCompiledSelectorClass() {
+        Predicate<Map<String, String>> first = Selector.parse("foo=bar,baz in (a,b)").compile();
+        Predicate<Map<String, String>> second = Selector.parse("foo!=bar").compile();
+        Assert.assertEquals("compiled(baz in (a,b),foo=bar)", first.toString());
+        if (SelectorSpinner.SUPPORTED) {
+            // every selector gets its own class, holding its handle as a constant
+            Assert.assertTrue(first.getClass().isHidden());
+            Assert.assertNotSame(first.getClass(), second.getClass());
+        }
+        Map<String, String> label = new HashMap<>();
+        label.put("foo", "bar");
+        label.put("baz", "b");
+        Assert.assertTrue(first.test(label));
+        Assert.assertFalse(second.test(label));
     }
 
     @Test
@@ -314,6 +339,56 @@ public class SelectorTest {
         }
     }
 
+    @Test
+    public void testLexerOffsets() {
+        String input = " key notin (a,bc) ,!x==y!=z";
+        List<Triple<Integer, Integer, Integer>> expected = Arrays.asList(
+                new Triple<>(Token.IdentifierToken, 1, 4),
+                new Triple<>(Token.NotInToken, 5, 10),
+                new Triple<>(Token.OpenParToken, 11, 12),
+                new Triple<>(Token.IdentifierToken, 12, 13),
+                new Triple<>(Token.CommaToken, 13, 14),
+                new Triple<>(Token.IdentifierToken, 14, 16),
+                new Triple<>(Token.ClosedParToken, 16, 17),
+                new Triple<>(Token.CommaToken, 18, 19),
+                new Triple<>(Token.DoesNotExistToken, 19, 20),
+                new Triple<>(Token.IdentifierToken, 20, 21),
+                new Triple<>(Token.DoubleEqualsToken, 21, 23),
+                new Triple<>(Token.IdentifierToken, 23, 24),
+                new Triple<>(Token.NotEqualsToken, 24, 26),
+                new Triple<>(Token.IdentifierToken, 26, 27),
+                new Triple<>(Token.EndOfStringToken, 27, 27));
+
+        Lexer lexer = new Lexer(input);
+        for (Triple<Integer, Integer, Integer> token : expected) {
+            Assert.assertEquals((int) token.getFirst(), lexer.next());
+            Assert.assertEquals((int) token.getSecond(), lexer.tokenStart());
+            Assert.assertEquals((int) token.getThird(), lexer.tokenEnd());
+            Assert.assertEquals(input.substring(token.getSecond(), token.getThird()),
+                    lexer.tokenText());
+        }
+    }
+
+    @Test
+    public void testParseLargeSelector() {
+        StringBuilder builder = new StringBuilder("key in (");
+        int count = 0;
+        while (builder.length() < 100000) {
+            if (count > 0) {
+                builder.append(',');
+            }
+            builder.append("value-").append(count++);
+        }
+        builder.append(')');
+
+        InternalSelector selector = Selector.parse(builder.toString());
+        Assert.assertEquals(count, selector.getRequirementList().get(0).getStrValues().size());
+
+        Map<String, String> label = new HashMap<>();
+        label.put("key", "value-" + (count - 1));
+        Assert.assertTrue(selector.matches(label));
+    }
+
     @Test
     public void testParserLookahead() {
         List<Tuple<String, List<Integer>>> testcases = new ArrayList<>();
@@ -375,6 +450,32 @@ public class SelectorTest {
         }
     }
 
+    @Test
+    public void testStreamingParse() {
+        Parser parser = new Parser(new Lexer("x in (c,a,b,a),y notin (,b),!z"));
+        InternalSelector selector = parser.parse();
+        Assert.assertTrue(parser.getScannedItems().isEmpty());
+        Assert.assertEquals(Arrays.asList("a", "b", "c"),
+                selector.getRequirementList().get(0).getStrValues());
+        Assert.assertEquals(Arrays.asList("", "b"),
+                selector.getRequirementList().get(1).getStrValues());
+        Assert.assertEquals("x in (a,b,c),y notin (,b),!z", selector.toString());
+
+        StringBuilder builder = new StringBuilder("x=a||y=b");
+        for (int i = 0; i < 10000; i++) {
+            builder.append(",key").append(i).append(" in (value").append(i).append(')');
+        }
+        Lexer lexer = new Lexer(builder.toString());
+        boolean isException = false;
+        try {
+            new Parser(lexer).parse();
+        } catch (IllegalArgumentException e) {
+            isException = true;
+        }
+        Assert.assertTrue(isException);
+        Assert.assertTrue(lexer.tokenEnd() < 16);
+    }
+
     @Test
     public void testParseOperator() {
         List<Tuple<String, Class<? extends Throwable>>> testcases = new ArrayList<>();
@@ -466,6 +567,28 @@ public class SelectorTest {
         }
     }
 
+    @Test
+    public void testValueSet() {
+        for (int size = 0; size <= 100; size++) {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                values.add("value-" + i);
+            }
+            // duplicates must not change the set
+            values.addAll(values.subList(0, size / 2));
+
+            ValueSet valueSet = ValueSet.of(values);
+            Assert.assertEquals(size, valueSet.size());
+            for (int i = 0; i < size; i++) {
+                Assert.assertTrue(valueSet.contains("value-" + i));
+            }
+            Assert.assertFalse(valueSet.contains("value-" + size));
+            Assert.assertFalse(valueSet.contains(""));
+            Assert.assertFalse(valueSet.contains(null));
+        }
+        Assert.assertTrue(ValueSet.of(Collections.singletonList("")).contains(""));
+    }
+
     @Test
     public void testToString()
             throws IllegalAccessException, InstantiationException, NoSuchMethodException, InvocationTargetException {
@@ -651,9 +774,62 @@ public class SelectorTest {
         for (Triple<Map<String, String>, InternalSelector, Boolean> testcase : testcases) {
             Assert.assertEquals(testcase.getSecond().matches(testcase.getFirst()),
                     testcase.getThird());
+            Assert.assertEquals(testcase.getSecond().compile().test(testcase.getFirst()),
+                    testcase.getThird());
         }
     }
 
+    @Test
+    public void testNumericRequirements() {
+        List<String> candidates = Arrays.asList("0", "7", "-7", "+7", "007", "", "-", "+", "1.5",
+                "v2", "2v", "9223372036854775807", "9223372036854775808", "-9223372036854775808",
+                "-9223372036854775809", "99999999999999999999", "2147483648");
+        for (String candidate : candidates) {
+            boolean parsable = true;
+            long want = NumericLabels.NOT_LONG;
+            try {
+                want = Long.parseLong(candidate);
+            } catch (NumberFormatException e) {
+                parsable = false;
+            }
+            Assert.assertEquals(candidate, parsable, NumericLabels.isLong(candidate));
+            Assert.assertEquals(candidate, want, NumericLabels.parseLong(candidate));
+        }
+
+        List<String> selectors = Arrays.asList("x>1", "x<1", "x>2147483647", "x<0",
+                "x>9223372036854775806", "x<9223372036854775807,y>7");
+        for (String candidate : candidates) {
+            Map<String, String> label = new HashMap<>();
+            label.put("x", candidate);
+            label.put("y", "8");
+            NumericLabels numericLabels = NumericLabels.of(label);
+            for (String selector : selectors) {
+                InternalSelector internalSelector = Selector.parse(selector);
+                boolean expected = true;
+                for (Requirement requirement : internalSelector.getRequirementList()) {
+                    String value = label.get(requirement.getKey());
+                    long operand = Long.parseLong(requirement.getStrValues().get(0));
+                    boolean ok;
+                    try {
+                        long parsed = Long.parseLong(value);
+                        ok = Operator.GreaterThan.equals(requirement.getOperator())
+                                ? parsed > operand : parsed < operand;
+                    } catch (NumberFormatException e) {
+                        ok = false;
+                    }
+                    expected &= ok;
+                }
+                Assert.assertEquals(selector + " " + candidate, expected,
+                        internalSelector.matches(label));
+                Assert.assertEquals(selector + " " + candidate, expected,
+                        internalSelector.matches(numericLabels));
+                Assert.assertEquals(selector + " " + candidate, expected,
+                        internalSelector.compile().test(label));
+            }
+        }
+        Assert.assertFalse(Selector.parse("missing>1").matches(NumericLabels.of(new HashMap<>())));
+    }
+
     @Test
     public void testSetSelectorParser() {
         List<Fourth<String, InternalSelector, Boolean, Boolean>> testcases = new ArrayList<>();
@@ -1082,4 +1258,281 @@ public class SelectorTest {
         }
     }
 
+    @Test
+    public void testOperatorTypes() {
+        for (Operator type : Operator.values()) {
+            Assert.assertSame(type, Operator.of(type.getSymbol()));
+        }
+        Assert.assertNull(Operator.of("~="));
+        Assert.assertNull(Operator.of(null));
+
+        Object[][] testcases = new Object[][]{
+                {Operator.Equals, Collections.singletonList("a"), EqualsRequirement.class},
+                {Operator.DoubleEquals, Collections.singletonList("a"), EqualsRequirement.class},
+                {Operator.NotEquals, Collections.singletonList("a"), NotEqualsRequirement.class},
+                {Operator.In, Arrays.asList("a", "b"), InRequirement.class},
+                {Operator.NotIn, Arrays.asList("a", "b"), NotInRequirement.class},
+                {Operator.Exists, null, ExistsRequirement.class},
+                {Operator.DoesNotExist, null, DoesNotExistRequirement.class},
+                {Operator.GreaterThan, Collections.singletonList("1"), NumericCompareRequirement.class},
+                {Operator.LessThan, Collections.singletonList("1"), NumericCompareRequirement.class},
+        };
+        for (Object[] testcase : testcases) {
+            String operator = (String) testcase[0];
+            @SuppressWarnings("unchecked")
+            Requirement requirement = Requirement.newRequirement("x", operator, (List<String>) testcase[1]);
+            Assert.assertSame(testcase[2], requirement.getClass());
+            Assert.assertEquals(operator, requirement.getOperator());
+            Assert.assertSame(Operator.of(operator), requirement.getOperatorType());
+        }
+
+        try {
+            Requirement.newRequirement("x", "~=", Collections.singletonList("a"));
+            Assert.fail("expected an unsupported operator error");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("not supported current operator:~=", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMatchAll() {
+        InternalSelector selector = Selector.parse("app in (web,db),tier!=frontend,priority>3");
+        Random random = new Random(11);
+        List<Map<String, String>> objects = new ArrayList<>();
+        for (int i = 0; i < 3 * BulkMatch.PARALLEL_THRESHOLD + 17; i++) {
+            Map<String, String> labels = new HashMap<>();
+            labels.put("app", random.nextBoolean() ? "web" : "db" + random.nextInt(2));
+            if (random.nextBoolean()) {
+                labels.put("tier", random.nextBoolean() ? "frontend" : "backend");
+            }
+            labels.put("priority", String.valueOf(random.nextInt(8)));
+            objects.add(labels);
+        }
+        BitSet expected = new BitSet();
+        for (int i = 0; i < objects.size(); i++) {
+            if (selector.matches(objects.get(i))) {
+                expected.set(i);
+            }
+        }
+        Assert.assertTrue(expected.cardinality() > 0);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Assert.assertEquals(expected, selector.matchAll(objects, pool));
+            Assert.assertEquals(expected, selector.matchAll(new LinkedList<>(objects), pool));
+            @SuppressWarnings("unchecked")
+            Map<String, String>[] array = objects.toArray(new Map[0]);
+            Assert.assertEquals(expected, selector.matchAll(array, pool));
+        } finally {
+            pool.shutdown();
+        }
+        Assert.assertEquals(expected, selector.matchAll(objects));
+        Assert.assertEquals(expected.get(0, 100), selector.matchAll(objects.subList(0, 100)));
+        Assert.assertTrue(selector.matchAll(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testAdaptiveOrder() {
+        InternalSelector reference = Selector.parse("app,env=prod,tier notin (frontend)");
+        Assert.assertFalse(reference.isAdaptive());
+        InternalSelector selector = reference.adaptive();
+        Assert.assertNotSame(reference, selector);
+        Assert.assertFalse(reference.isAdaptive());
+        Assert.assertTrue(selector.isAdaptive());
+        Assert.assertSame(selector, selector.adaptive());
+
+        Random random = new Random(3);
+        List<Map<String, String>> objects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, String> labels = new HashMap<>();
+            labels.put("app", "web");
+            labels.put("env", i % 10 == 0 ? "prod" : "dev");
+            labels.put("tier", random.nextBoolean() ? "frontend" : "backend");
+            objects.add(labels);
+        }
+        int samples = AdaptiveOrder.SAMPLE_INTERVAL * AdaptiveOrder.REORDER_INTERVAL * 16;
+        for (int i = 0; i < samples; i++) {
+            Map<String, String> labels = objects.get(i % objects.size());
+            Assert.assertEquals(reference.matches(labels), selector.matches(labels));
+        }
+        // env=prod rejects nine objects in ten while app never does
+        List<Requirement> order = selector.evaluationOrder();
+        Assert.assertEquals("env", order.get(0).getKey());
+        Assert.assertEquals("app", order.get(2).getKey());
+        Assert.assertEquals(reference.toString(), selector.toString());
+        Assert.assertEquals("app", selector.getRequirementList().get(0).getKey());
+
+        // once every object is in prod and most are frontend, tier takes the lead
+        for (Map<String, String> labels : objects) {
+            labels.put("env", "prod");
+            labels.put("tier", random.nextInt(10) == 0 ? "backend" : "frontend");
+        }
+        for (int i = 0; i < samples; i++) {
+            Map<String, String> labels = objects.get(i % objects.size());
+            Assert.assertEquals(reference.matches(labels), selector.matches(labels));
+        }
+        Assert.assertEquals("tier", selector.evaluationOrder().get(0).getKey());
+
+        selector.addRequire(Requirement.newRequirement("zone", Operator.Exists, null));
+        Assert.assertEquals(4, selector.evaluationOrder().size());
+        Assert.assertEquals(selector.getRequirementList(), selector.evaluationOrder());
+    }
+
+    @Test
+    public void testAdaptiveOrderOfFrozenSelector() {
+        // shared selectors are left alone, the adaptive one is a copy
+        SelectorCache cache = new SelectorCache(4);
+        InternalSelector shared = cache.parse("app,env=prod");
+        InternalSelector adaptive = shared.adaptive();
+        Assert.assertNotSame(shared, adaptive);
+        Assert.assertFalse(shared.isAdaptive());
+        Assert.assertSame(shared, cache.parse("app,env=prod"));
+        Assert.assertTrue(adaptive.isAdaptive());
+        Assert.assertTrue(adaptive.isFrozen());
+        Assert.assertEquals(shared, adaptive);
+        Assert.assertSame(adaptive, adaptive.adaptive());
+    }
+
+    @Test
+    public void testCanonicalForm() {
+        Requirement in = Requirement.newRequirement("x", Operator.In, Arrays.asList("c", "a", "c", "b"));
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), in.getStrValues());
+        Assert.assertEquals("x in (a,b,c)", in.toString());
+        Assert.assertEquals(in, Requirement.newRequirement("x", Operator.In, Arrays.asList("b", "c", "a")));
+
+        Requirement equals = Requirement.newRequirement("x", Operator.Equals, Collections.singletonList("a"));
+        Requirement doubleEquals = Requirement.newRequirement("x", Operator.DoubleEquals, Collections.singletonList("a"));
+        Assert.assertEquals(equals, doubleEquals);
+        Assert.assertEquals(equals.hashCode(), doubleEquals.hashCode());
+        Assert.assertEquals("x==a", doubleEquals.toString());
+        Assert.assertNotEquals(equals, Requirement.newRequirement("x", Operator.NotEquals, Collections.singletonList("a")));
+        Assert.assertNotEquals(equals, Requirement.newRequirement("y", Operator.Equals, Collections.singletonList("a")));
+        Assert.assertNotEquals(in, Requirement.newRequirement("x", Operator.NotIn, Arrays.asList("a", "b", "c")));
+
+        String[][] equal = {
+                {"x=a,y in (b,c)", "y in (c,b,c),x==a"},
+                {"x,!x", "!x,x"},
+                {"x=a,x=a", "x==a"},
+                {"", " "},
+        };
+        for (String[] pair : equal) {
+            InternalSelector first = Selector.parse(pair[0]);
+            InternalSelector second = Selector.parse(pair[1]);
+            Assert.assertEquals(pair[0], first, second);
+            Assert.assertEquals(pair[0], first.hashCode(), second.hashCode());
+        }
+        String[][] different = {
+                {"x=a", "x!=a"},
+                {"x in (a,b)", "x in (a)"},
+                {"x", "x,y"},
+                {"x>1", "x<1"},
+        };
+        for (String[] pair : different) {
+            Assert.assertNotEquals(pair[0], Selector.parse(pair[0]), Selector.parse(pair[1]));
+        }
+
+        InternalSelector selector = Selector.parse("x=a");
+        int hash = selector.hashCode();
+        selector.addRequire(Requirement.newRequirement("y", Operator.Exists, null));
+        Assert.assertNotEquals(hash, selector.hashCode());
+        Assert.assertEquals(Selector.parse("y,x=a"), selector);
+    }
+
+    @Test
+    public void testIntern() {
+        InternalSelector first = Selector.parse("app=web,tier in (backend,db)");
+        InternalSelector second = Selector.parse("tier in (db,backend),app==web");
+        Assert.assertNotSame(first, second);
+        InternalSelector interned = first.intern();
+        Assert.assertSame(first, interned);
+        Assert.assertTrue(interned.isFrozen());
+        Assert.assertSame(interned, second.intern());
+        Assert.assertFalse(second.isFrozen());
+        Assert.assertNotSame(interned, Selector.parse("app=web").intern());
+
+        SelectorInterner interner = new SelectorInterner();
+        Assert.assertSame(second, interner.intern(second));
+        Assert.assertSame(second, interner.intern(Selector.parse("app=web,tier in (backend,db)")));
+        Assert.assertEquals(1, interner.size());
+    }
+
+    @Test
+    public void testKeySignature() {
+        InternalSelector selector = Selector.parse("app=web,tier in (backend),env!=prod,!debug");
+        long mask = selector.requiredKeyMask();
+        Assert.assertEquals(KeySignature.bit("app") | KeySignature.bit("tier"), mask);
+        Assert.assertEquals(0, Selector.parse("env!=prod,!debug,x notin (a)").requiredKeyMask());
+
+        Map<String, String> labels = new HashMap<>();
+        labels.put("tier", "backend");
+        Assert.assertNotEquals(mask, KeySignature.of(labels) & mask);
+        Assert.assertFalse(selector.matches(labels, KeySignature.of(labels)));
+        labels.put("app", "web");
+        Assert.assertTrue(selector.matches(labels, KeySignature.of(labels)));
+
+        selector.addRequire(Selector.parse("owner").getRequirementList().get(0));
+        Assert.assertEquals(mask | KeySignature.bit("owner"), selector.requiredKeyMask());
+        Assert.assertFalse(selector.matches(labels, KeySignature.of(labels)));
+
+        String[] selectors = {"a=1", "a=1,b in (2,3)", "a,!b", "c>1,d<5", "a!=1,e", "b notin (2)"};
+        String[] keys = {"a", "b", "c", "d", "e", "f"};
+        Random random = new Random(21);
+        for (int i = 0; i < 2000; i++) {
+            Map<String, String> randomLabels = new HashMap<>();
+            for (String key : keys) {
+                if (random.nextBoolean()) {
+                    randomLabels.put(key, String.valueOf(random.nextInt(6)));
+                }
+            }
+            long signature = KeySignature.of(randomLabels);
+            for (String s : selectors) {
+                InternalSelector parsed = Selector.parse(s);
+                Assert.assertEquals(s + " " + randomLabels, parsed.matches(randomLabels),
+                        parsed.matches(randomLabels, signature));
+            }
+        }
+    }
+
+    @Test
+    public void testParseAll() {
+        List<String> inputs = new ArrayList<>();
+        Random random = new Random(25);
+        String[] shapes = {"app=web-%d", "tier in (a,b%d),env!=prod", "x>%d", "!y%d", "k%d=("};
+        for (int i = 0; i < 3 * BulkParse.PARALLEL_THRESHOLD; i++) {
+            inputs.add(String.format(shapes[random.nextInt(shapes.length)], random.nextInt(400)));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (List<Selector.ParseResult> results : Arrays.asList(
+                    Selector.parseAll(inputs.subList(0, 50), pool), Selector.parseAll(inputs, pool),
+                    Selector.parseAll(inputs))) {
+                Assert.assertTrue(results.size() == 50 || results.size() == inputs.size());
+                Map<String, Selector.ParseResult> seen = new HashMap<>();
+                for (int i = 0; i < results.size(); i++) {
+                    String input = inputs.get(i);
+                    Selector.ParseResult result = results.get(i);
+                    Assert.assertEquals(input, result.getInput());
+                    try {
+                        InternalSelector want = Selector.parse(input);
+                        Assert.assertTrue(result.isSuccess());
+                        Assert.assertNull(result.getError());
+                        Assert.assertEquals(want, result.getSelector());
+                        Assert.assertTrue(result.getSelector().isFrozen());
+                    } catch (IllegalArgumentException e) {
+                        Assert.assertFalse(result.isSuccess());
+                        Assert.assertNull(result.getSelector());
+                        Assert.assertEquals(e.getMessage(), result.getError().getMessage());
+                    }
+                    // identical strings are parsed once
+                    Selector.ParseResult previous = seen.put(input, result);
+                    if (previous != null) {
+                        Assert.assertSame(previous, result);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Assert.assertEquals(Collections.emptyList(), Selector.parseAll(Collections.emptyList()));
+    }
 }
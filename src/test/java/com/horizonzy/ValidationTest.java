@@ -0,0 +1,143 @@
+package com.horizonzy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ValidationTest {
+
+    private static final Pattern dns1123SubdomainRegexp = Pattern
+            .compile("^" + Validation.dns1123SubdomainFmt + "$");
+
+    private static final Pattern qualifiedNameRegexp = Pattern
+            .compile("^" + Validation.qualifiedNameFmt + "$");
+
+    private static final Pattern labelValueRegexp = Pattern
+            .compile("^" + Validation.labelValueFmt + "$");
+
+    private static final char[] ALPHABET = {'a', 'z', 'A', '0', '9', '-', '_', '.', '/', ' ',
+            '\n', 'é'};
+
+    // the message each outcome of the regular expression validators produces
+    private static final Map<String, String> MESSAGES = new HashMap<>();
+
+    static {
+        MESSAGES.put("ok", null);
+        MESSAGES.put("name-parts", qualifiedNameError("a/b/c"));
+        MESSAGES.put("prefix-empty", qualifiedNameError("/a"));
+        MESSAGES.put("prefix-length", qualifiedNameError(repeat('a', 254) + "/a"));
+        MESSAGES.put("prefix-format", qualifiedNameError("A/a"));
+        MESSAGES.put("name-empty", qualifiedNameError(""));
+        MESSAGES.put("name-length", qualifiedNameError(repeat('a', 64)));
+        MESSAGES.put("name-format", qualifiedNameError("-"));
+        MESSAGES.put("value-length", labelValueError(repeat('a', 64)));
+        MESSAGES.put("value-format", labelValueError("-"));
+    }
+
+    @Test
+    public void testMatchesRegularExpressions() {
+        List<String> inputs = new ArrayList<>();
+        inputs.add("");
+        enumerate("", 4, inputs);
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(80);
+            for (int j = 0; j < length; j++) {
+                // mostly valid characters so that long inputs still get past the first check
+                builder.append(random.nextInt(4) == 0 ? ALPHABET[random.nextInt(ALPHABET.length)]
+                        : ALPHABET[random.nextInt(5)]);
+            }
+            inputs.add(builder.toString());
+        }
+        for (int length : new int[]{62, 63, 64, 252, 253, 254}) {
+            inputs.add(repeat('a', length));
+            inputs.add(repeat('a', length) + "/a");
+            inputs.add("a/" + repeat('a', length));
+            inputs.add(repeat('a', length - 2) + ".b/c");
+        }
+
+        for (String input : inputs) {
+            Assert.assertEquals(input, MESSAGES.get(referenceQualifiedName(input)),
+                    qualifiedNameError(input));
+            Assert.assertEquals(input, MESSAGES.get(referenceLabelValue(input)),
+                    labelValueError(input));
+        }
+    }
+
+    private static void enumerate(String prefix, int depth, List<String> inputs) {
+        if (depth == 0) {
+            return;
+        }
+        for (char ch : ALPHABET) {
+            inputs.add(prefix + ch);
+            enumerate(prefix + ch, depth - 1, inputs);
+        }
+    }
+
+    // referenceQualifiedName is the String.split and regular expression validation that
+    // Validation.isQualifiedName replaced
+    private static String referenceQualifiedName(String value) {
+        String[] parts = value.split("/");
+        String name;
+        if (parts.length == 1) {
+            name = parts[0];
+        } else if (parts.length == 2) {
+            String prefix = parts[0];
+            name = parts[1];
+            if (prefix.length() == 0) {
+                return "prefix-empty";
+            } else if (prefix.length() > 253) {
+                return "prefix-length";
+            } else if (!dns1123SubdomainRegexp.matcher(prefix).matches()) {
+                return "prefix-format";
+            }
+        } else {
+            return "name-parts";
+        }
+        if (name.length() == 0) {
+            return "name-empty";
+        } else if (name.length() > 63) {
+            return "name-length";
+        }
+        return qualifiedNameRegexp.matcher(name).matches() ? "ok" : "name-format";
+    }
+
+    private static String referenceLabelValue(String value) {
+        if (value.length() > 63) {
+            return "value-length";
+        }
+        return labelValueRegexp.matcher(value).matches() ? "ok" : "value-format";
+    }
+
+    private static String qualifiedNameError(String value) {
+        try {
+            Validation.isQualifiedName(value);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String labelValueError(String value) {
+        try {
+            Validation.isValidLabelValue(value);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String repeat(char ch, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(ch);
+        }
+        return builder.toString();
+    }
+}